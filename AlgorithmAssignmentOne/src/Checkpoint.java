@@ -0,0 +1,127 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Saves the finished trials of a {@link PercolationStats} run to a file every
+ * so often, so that a run which is killed can resume where it was.
+ *
+ * Trial t only depends on the seed and t, so the percolation counts of the
+ * trials done so far are the whole state of a run: the random streams start
+ * again from the seed and a trial that was cut short is simply run again.
+ * The file holds the run's configuration, seed and T, followed by one long
+ * per finished trial, and is replaced atomically on every save.
+ *
+ * @author Qiangqiang Gu
+ */
+public class Checkpoint {
+    // "PCK1"
+    private static final int MAGIC = 0x50434b31;
+    private final File file;
+    private final long intervalNanos;
+    private long lastSave = System.nanoTime();
+
+    /**
+     * @param file where the run is saved and resumed from
+     * @param intervalMillis least time between two saves
+     */
+    public Checkpoint(final File file, final long intervalMillis) {
+        if (file == null) {
+            throw new NullPointerException("file");
+        }
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException("intervalMillis");
+        }
+        this.file = file;
+        this.intervalNanos = intervalMillis * 1000000;
+    }
+
+    public File file() {
+        return file;
+    }
+
+    /**
+     * the trials an earlier run saved
+     * @param configuration see {@link PercolationTrial#configuration()}
+     * @param seed
+     * @param T
+     * @return the percolation counts of trials 0, 1, ..., empty without a file
+     * @throws IOException
+     */
+    public long[] load(final String configuration, final long seed, final int T)
+        throws IOException {
+        if (!file.exists()) {
+            return new long[0];
+        }
+        final DataInputStream in = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a checkpoint: " + file);
+            }
+            if (!in.readUTF().equals(configuration) || in.readLong() != seed
+                || in.readInt() != T) {
+                throw new IllegalArgumentException("checkpoint of another run");
+            }
+            final int done = in.readInt();
+            if (done < 0 || done > T) {
+                throw new IOException("corrupt checkpoint: " + file);
+            }
+            final long[] counts = new long[done];
+            for (int i = 0; i < done; i++) {
+                counts[i] = in.readLong();
+            }
+            return counts;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * has the interval passed since the last save?
+     * @return
+     */
+    public boolean isDue() {
+        return System.nanoTime() - lastSave >= intervalNanos;
+    }
+
+    /**
+     * save the first done trials of a run
+     * @param configuration
+     * @param seed
+     * @param T
+     * @param counts
+     * @param done
+     * @throws IOException
+     */
+    public void save(final String configuration, final long seed, final int T,
+                     final long[] counts, final int done) throws IOException {
+        final File temporary = new File(file.getPath() + ".tmp");
+        final DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(temporary)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeUTF(configuration);
+            out.writeLong(seed);
+            out.writeInt(T);
+            out.writeInt(done);
+            for (int i = 0; i < done; i++) {
+                out.writeLong(counts[i]);
+            }
+        } finally {
+            out.close();
+        }
+        // a run killed while saving still finds the previous checkpoint
+        Files.move(temporary.toPath(), file.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        lastSave = System.nanoTime();
+    }
+}
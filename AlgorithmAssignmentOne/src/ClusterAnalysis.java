@@ -0,0 +1,385 @@
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Hoshen-Kopelman cluster labelling of an N-by-N percolation system, or of
+ * a {@link LatticePercolation}, in a single pass from the top row to the
+ * bottom one. Only two rows of labels are kept: clusters that do not reach
+ * the current row are complete and go straight into the statistics, so the
+ * working memory is O(N) (one row of the lattice) apart from the size
+ * histogram. In bond percolation every site belongs to a cluster, joined
+ * to its neighbours by open bonds. One instance can analyse many systems
+ * of the same size.
+ * Execution: java ClusterAnalysis N T [seed]
+ *
+ * @author Qiangqiang Gu
+ */
+public class ClusterAnalysis {
+    private static final int BLOCKED = -1;
+    // sites per row
+    private final int size;
+    private final int rows;
+    // null for an N-by-N system
+    private final Lattice lattice;
+    private final int[] neighbors = new int[Lattice.MAX_DEGREE];
+    // labels of the previous row, in [0, N), and of the current row, in
+    // [N, 2N); both share the union find below
+    private final int[] previous;
+    private final int[] current;
+    private final int[] parent;
+    private final long[] sizes;
+    private final boolean[] top;
+    private final int[] relabel;
+    private final long[] nextSizes;
+    private final boolean[] nextTop;
+    private final SortedMap<Long, Long> histogram = new TreeMap<Long, Long>();
+    private long clusters;
+    private long largest;
+    private long spanning;
+    private long spanningSize;
+    private long openSites;
+
+    public ClusterAnalysis(final int N) {
+        this(N, N, null);
+    }
+
+    /**
+     * an analysis of site or bond percolation systems on the lattice
+     * @param lattice
+     */
+    public ClusterAnalysis(final Lattice lattice) {
+        this(lattice.width() * lattice.depth(), lattice.height(), lattice);
+    }
+
+    private ClusterAnalysis(final int N, final int rows, final Lattice lattice) {
+        if (N <= 0) {
+            throw new IllegalArgumentException("N");
+        }
+        size = N;
+        this.rows = rows;
+        this.lattice = lattice;
+        previous = new int[N];
+        current = new int[N];
+        parent = new int[2 * N];
+        sizes = new long[2 * N];
+        top = new boolean[2 * N];
+        relabel = new int[2 * N];
+        nextSizes = new long[N];
+        nextTop = new boolean[N];
+    }
+
+    /**
+     * label the open sites of an N-by-N system, replacing the results of
+     * the previous analysis
+     * @param system
+     */
+    public void analyze(final PercolationSystem system) {
+        if (lattice != null) {
+            throw new IllegalStateException("lattice");
+        }
+        start();
+        for (int row = 1; row <= size; row++) {
+            labelRow(system, row);
+            finishClusters();
+            relabelRow();
+        }
+        finish();
+    }
+
+    /**
+     * label the clusters of a system on the lattice of this analysis,
+     * replacing the results of the previous analysis
+     * @param system
+     */
+    public void analyze(final LatticePercolation system) {
+        if (system.lattice() != lattice) {
+            throw new IllegalArgumentException("lattice");
+        }
+        start();
+        for (int row = 0; row < rows; row++) {
+            labelRow(system, row);
+            finishClusters();
+            relabelRow();
+        }
+        finish();
+    }
+
+    /**
+     * number of clusters of open sites
+     * @return
+     */
+    public long clusters() {
+        return clusters;
+    }
+
+    /**
+     * size of the largest cluster
+     * @return
+     */
+    public long largest() {
+        return largest;
+    }
+
+    /**
+     * number of clusters joining the top row to the bottom row
+     * @return
+     */
+    public long spanning() {
+        return spanning;
+    }
+
+    /**
+     * size of the largest spanning cluster, 0 if none
+     * @return
+     */
+    public long spanningSize() {
+        return spanningSize;
+    }
+
+    /**
+     * number of sites in clusters: the open sites, or every site in bond
+     * percolation
+     * @return
+     */
+    public long openSites() {
+        return openSites;
+    }
+
+    /**
+     * how many clusters there are of each size
+     * @return cluster size to number of clusters, in increasing size
+     */
+    public SortedMap<Long, Long> histogram() {
+        return Collections.unmodifiableSortedMap(histogram);
+    }
+
+    public static void main(String[] args) {
+        final int N = Integer.parseInt(args[0]);
+        final int T = Integer.parseInt(args[1]);
+        long seed = StdRandom.getSeed();
+        if (args.length > 2) {
+            seed = Long.parseLong(args[2]);
+        }
+        final ForkJoinPool pool = new ForkJoinPool();
+        PercolationStats stats;
+        try {
+            stats = new PercolationStats(N, T, seed, pool, Sampling.PERMUTATION,
+                                         PercolationBackend.COMPACT, true);
+        } finally {
+            pool.shutdown();
+        }
+        final long[] counts = stats.percolationCounts();
+        final long[] clusters = stats.clusterCounts();
+        final long[] largest = stats.largestClusters();
+        final long[] spanning = stats.spanningClusters();
+        final long[] spanningSizes = stats.spanningClusterSizes();
+        StdOut.println("trial,threshold,clusters,largest,spanning,spanningSize");
+        for (int trial = 0; trial < T; trial++) {
+            StdOut.println(trial + "," + counts[trial] / ((double) N * N) + ","
+                           + clusters[trial] + "," + largest[trial] + ","
+                           + spanning[trial] + "," + spanningSizes[trial]);
+        }
+    }
+
+    private void start() {
+        histogram.clear();
+        clusters = 0;
+        largest = 0;
+        spanning = 0;
+        spanningSize = 0;
+        openSites = 0;
+        for (int column = 0; column < size; column++) {
+            previous[column] = BLOCKED;
+        }
+    }
+
+    // whatever reaches the last row is complete and touches the bottom
+    private void finish() {
+        for (int label = 0; label < size; label++) {
+            relabel[label] = BLOCKED;
+        }
+        for (int column = 0; column < size; column++) {
+            final int label = previous[column];
+            if (label != BLOCKED && relabel[label] == BLOCKED) {
+                relabel[label] = label;
+                record(sizes[label], top[label]);
+            }
+        }
+    }
+
+    private void labelRow(final PercolationSystem system, final int row) {
+        for (int column = 0; column < size; column++) {
+            if (!system.isOpen(row, column + 1)) {
+                current[column] = BLOCKED;
+                continue;
+            }
+            openSites++;
+            final int label = size + column;
+            parent[label] = label;
+            sizes[label] = 1;
+            top[label] = row == 1;
+            current[column] = label;
+            if (column > 0 && current[column - 1] != BLOCKED) {
+                union(label, current[column - 1]);
+            }
+            if (previous[column] != BLOCKED) {
+                union(label, previous[column]);
+            }
+        }
+    }
+
+    // label the whole row first: with periodic columns a site also joins
+    // the last site of its row
+    private void labelRow(final LatticePercolation system, final int row) {
+        final boolean bonds = system.isBondPercolation();
+        final int first = row * size;
+        for (int column = 0; column < size; column++) {
+            if (!bonds && !system.isOpen(first + column)) {
+                current[column] = BLOCKED;
+                continue;
+            }
+            openSites++;
+            final int label = size + column;
+            parent[label] = label;
+            sizes[label] = 1;
+            top[label] = row == 0;
+            current[column] = label;
+        }
+        for (int column = 0; column < size; column++) {
+            if (bonds) {
+                if (row > 0) {
+                    joinBonds(system, first - size + column, first);
+                }
+                joinBonds(system, first + column, first);
+            } else if (current[column] != BLOCKED) {
+                joinNeighbors(first + column, first);
+            }
+        }
+    }
+
+    // union an open site with its open neighbours in this row and the last
+    private void joinNeighbors(final int site, final int first) {
+        final int count = lattice.neighbors(site, neighbors);
+        for (int i = 0; i < count; i++) {
+            final int neighbor = neighbors[i];
+            if (neighbor < first + size) {
+                final int label = labelOf(neighbor, first);
+                if (label != BLOCKED) {
+                    union(current[site - first], label);
+                }
+            }
+        }
+    }
+
+    // union a site with the neighbours in this row that its open bonds reach
+    private void joinBonds(final LatticePercolation system, final int site,
+                           final int first) {
+        final int degree = lattice.forwardDegree();
+        for (int k = 0; k < degree; k++) {
+            final int neighbor = lattice.forwardNeighbor(site, k);
+            if (neighbor >= first && neighbor < first + size
+                && system.isOpen(site * degree + k)) {
+                union(labelOf(site, first), current[neighbor - first]);
+            }
+        }
+    }
+
+    // the label of a site in the row starting at first or in the one before
+    private int labelOf(final int site, final int first) {
+        if (site >= first) {
+            return current[site - first];
+        }
+        return previous[site - first + size];
+    }
+
+    // clusters of the previous row that did not reach this row are done
+    private void finishClusters() {
+        for (int label = 0; label < 2 * size; label++) {
+            relabel[label] = BLOCKED;
+        }
+        for (int column = 0; column < size; column++) {
+            if (current[column] != BLOCKED) {
+                relabel[find(current[column])] = 0;
+            }
+        }
+        for (int column = 0; column < size; column++) {
+            if (previous[column] != BLOCKED) {
+                final int root = find(previous[column]);
+                if (relabel[root] == BLOCKED) {
+                    // not the bottom row yet, so it cannot span
+                    record(sizes[root], false);
+                    relabel[root] = 0;
+                }
+            }
+        }
+    }
+
+    // renumber the clusters of this row into [0, N) for the next one
+    private void relabelRow() {
+        for (int label = 0; label < 2 * size; label++) {
+            relabel[label] = BLOCKED;
+        }
+        int next = 0;
+        for (int column = 0; column < size; column++) {
+            if (current[column] == BLOCKED) {
+                previous[column] = BLOCKED;
+                continue;
+            }
+            final int root = find(current[column]);
+            if (relabel[root] == BLOCKED) {
+                relabel[root] = next;
+                nextSizes[next] = sizes[root];
+                nextTop[next] = top[root];
+                next++;
+            }
+            previous[column] = relabel[root];
+        }
+        for (int label = 0; label < next; label++) {
+            parent[label] = label;
+            sizes[label] = nextSizes[label];
+            top[label] = nextTop[label];
+        }
+    }
+
+    private void record(final long clusterSize, final boolean spans) {
+        clusters++;
+        largest = Math.max(largest, clusterSize);
+        if (spans) {
+            spanning++;
+            spanningSize = Math.max(spanningSize, clusterSize);
+        }
+        long count = 1;
+        if (histogram.containsKey(clusterSize)) {
+            count += histogram.get(clusterSize);
+        }
+        histogram.put(clusterSize, count);
+    }
+
+    private void union(final int label, final int other) {
+        int root = find(label);
+        int otherRoot = find(other);
+        if (root == otherRoot) {
+            return;
+        }
+        if (sizes[root] < sizes[otherRoot]) {
+            final int swap = root;
+            root = otherRoot;
+            otherRoot = swap;
+        }
+        parent[otherRoot] = root;
+        sizes[root] += sizes[otherRoot];
+        top[root] |= top[otherRoot];
+    }
+
+    // find with path halving
+    private int find(final int label) {
+        int node = label;
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * A percolation system backed by a single union find. Instead of a second
+ * structure to avoid backwash, every root carries "connected to top" and
+ * "connected to bottom" flags. Each site costs one int for its parent and
+ * one byte holding the open bit, the two flags and the union rank.
+ *
+ * @author Qiangqiang Gu
+ */
+public class CompactPercolation implements PercolationSystem {
+    // largest N whose N * N sites still fit in an int index
+    public static final int MAX_SIZE = 46340;
+    private static final int OPEN = FlaggedUnionFind.OPEN;
+    private static final int TOP = FlaggedUnionFind.TOP;
+    private static final int BOTTOM = FlaggedUnionFind.BOTTOM;
+    private static final int CONNECTED = FlaggedUnionFind.CONNECTED;
+
+    private final int size;
+    private final FlaggedUnionFind sites;
+    private long openSites;
+    private long percolatedAt = -1;
+
+    // create N-by-N grid, with all sites blocked
+    public CompactPercolation(int N) {
+        if (N <= 0 || N > MAX_SIZE) {
+            throw new IllegalArgumentException("N");
+        }
+        size = N;
+        sites = FlaggedUnionFind.onHeap(N * N);
+    }
+
+    // open site (row i, column j) if it is not open already
+    public void open(int i, int j) {
+        openAndCheck(i, j);
+    }
+
+    // open site (row i, column j); true if that made the system percolate
+    // for the first time
+    public boolean openAndCheck(int i, int j) {
+        validate(i, j);
+        final int index = getIndex(i, j);
+        if (sites.isOpen(index)) {
+            return false;
+        }
+        openSites++;
+        int flags = OPEN;
+        if (i == 1) {
+            flags |= TOP;
+        }
+        if (i == size) {
+            flags |= BOTTOM;
+        }
+        sites.makeSet(index, flags);
+        if (j > 1) {
+            tryUnion(index, index - 1);
+        }
+        if (j < size) {
+            tryUnion(index, index + 1);
+        }
+        if (i > 1) {
+            tryUnion(index, index - size);
+        }
+        if (i < size) {
+            tryUnion(index, index + size);
+        }
+        if (percolatedAt < 0 && sites.flags(index) == CONNECTED) {
+            percolatedAt = openSites;
+            return true;
+        }
+        return false;
+    }
+
+    // is site (row i, column j) open?
+    public boolean isOpen(int i, int j) {
+        validate(i, j);
+        return sites.isOpen(getIndex(i, j));
+    }
+
+    // is site (row i, column j) full?
+    public boolean isFull(int i, int j) {
+        validate(i, j);
+        final int index = getIndex(i, j);
+        return sites.isOpen(index) && (sites.flags(index) & TOP) != 0;
+    }
+
+    // does the system percolate?
+    public boolean percolates() {
+        return percolatedAt >= 0;
+    }
+
+    // number of open sites
+    public long openSites() {
+        return openSites;
+    }
+
+    // number of open sites when the system first percolated, -1 before
+    public long percolatedAt() {
+        return percolatedAt;
+    }
+
+    // block every site again; parents of blocked sites are never read
+    public void reset() {
+        sites.clear();
+        openSites = 0;
+        percolatedAt = -1;
+    }
+
+    private void tryUnion(final int index, final int neighbor) {
+        if (sites.isOpen(neighbor)) {
+            sites.union(index, neighbor);
+        }
+    }
+
+    private void validate(int i, int j) {
+        if (i <= 0 || i > size)
+            throw new IndexOutOfBoundsException("i");
+        if (j <= 0 || j > size)
+            throw new IndexOutOfBoundsException("j");
+    }
+
+    private int getIndex(int i, int j) {
+        return (i - 1) * size + j - 1;
+    }
+}
@@ -0,0 +1,194 @@
+import java.util.Arrays;
+
+/**
+ * The union find shared by {@link CompactPercolation},
+ * {@link OffHeapPercolation} and {@link LatticePercolation}: union by rank
+ * with path halving, where every site keeps one int for its parent and one
+ * byte holding the open bit, the "connected to top" and "connected to
+ * bottom" flags of its root and the union rank. The algorithm is written
+ * once over long indices; the storage is either arrays on the heap or
+ * segmented buffers off it.
+ *
+ * @author Qiangqiang Gu
+ */
+abstract class FlaggedUnionFind {
+    static final int OPEN = 1;
+    static final int TOP = 2;
+    static final int BOTTOM = 4;
+    static final int CONNECTED = TOP | BOTTOM;
+    private static final int RANK_SHIFT = 3;
+    private static final int FLAGS = (1 << RANK_SHIFT) - 1;
+
+    /**
+     * the sites of an int[] and a byte[], for up to Integer.MAX_VALUE sites
+     * @param sites
+     * @return
+     */
+    static FlaggedUnionFind onHeap(final int sites) {
+        return new OnHeap(sites);
+    }
+
+    /**
+     * the sites in segmented buffers, for up to 2^32 sites
+     * @param parent 4 bytes per site
+     * @param state 1 byte per site
+     * @return
+     */
+    static FlaggedUnionFind offHeap(final SegmentedBuffer parent,
+                                    final SegmentedBuffer state) {
+        return new OffHeap(parent, state);
+    }
+
+    /**
+     * open a site as a component of its own
+     * @param site
+     * @param flags OPEN and whichever of TOP and BOTTOM the site touches
+     */
+    final void makeSet(final long site, final int flags) {
+        setParent(site, site);
+        setState(site, flags);
+    }
+
+    final boolean isOpen(final long site) {
+        return (state(site) & OPEN) != 0;
+    }
+
+    /**
+     * the TOP and BOTTOM flags of the component of an open site
+     * @param site
+     * @return
+     */
+    final int flags(final long site) {
+        return state(find(site)) & CONNECTED;
+    }
+
+    // union by rank of two open sites, merging their flags
+    final void union(final long site, final long neighbor) {
+        final long root = find(site);
+        final long other = find(neighbor);
+        if (root == other) {
+            return;
+        }
+        final int rootState = state(root);
+        final int otherState = state(other);
+        final int rank = rootState >>> RANK_SHIFT;
+        final int otherRank = otherState >>> RANK_SHIFT;
+        final int flags = (rootState | otherState) & FLAGS;
+        if (rank < otherRank) {
+            setParent(root, other);
+            setState(other, (otherRank << RANK_SHIFT) | flags);
+        } else {
+            setParent(other, root);
+            int newRank = rank;
+            if (rank == otherRank) {
+                newRank++;
+            }
+            setState(root, (newRank << RANK_SHIFT) | flags);
+        }
+    }
+
+    // find with path halving
+    final long find(final long site) {
+        long current = site;
+        long next = parent(current);
+        while (next != current) {
+            final long grandParent = parent(next);
+            setParent(current, grandParent);
+            current = grandParent;
+            next = parent(current);
+        }
+        return current;
+    }
+
+    /**
+     * close every site; parents of closed sites are never read
+     */
+    abstract void clear();
+
+    abstract long parent(long site);
+
+    abstract void setParent(long site, long parent);
+
+    // the state byte, unsigned
+    abstract int state(long site);
+
+    abstract void setState(long site, int state);
+
+    /**
+     * Parents and states in arrays on the heap.
+     */
+    private static final class OnHeap extends FlaggedUnionFind {
+        private final int[] parents;
+        private final byte[] states;
+
+        private OnHeap(final int sites) {
+            parents = new int[sites];
+            states = new byte[sites];
+        }
+
+        @Override
+        void clear() {
+            Arrays.fill(states, (byte) 0);
+        }
+
+        @Override
+        long parent(final long site) {
+            return parents[(int) site];
+        }
+
+        @Override
+        void setParent(final long site, final long parent) {
+            parents[(int) site] = (int) parent;
+        }
+
+        @Override
+        int state(final long site) {
+            return states[(int) site] & 0xFF;
+        }
+
+        @Override
+        void setState(final long site, final int state) {
+            states[(int) site] = (byte) state;
+        }
+    }
+
+    /**
+     * Parents as unsigned ints and states in segmented buffers.
+     */
+    private static final class OffHeap extends FlaggedUnionFind {
+        private static final long UNSIGNED = 0xFFFFFFFFL;
+        private final SegmentedBuffer parents;
+        private final SegmentedBuffer states;
+
+        private OffHeap(final SegmentedBuffer parents,
+                        final SegmentedBuffer states) {
+            this.parents = parents;
+            this.states = states;
+        }
+
+        @Override
+        void clear() {
+            states.clear();
+        }
+
+        @Override
+        long parent(final long site) {
+            return parents.getInt(site << 2) & UNSIGNED;
+        }
+
+        @Override
+        void setParent(final long site, final long parent) {
+            parents.putInt(site << 2, (int) parent);
+        }
+
+        @Override
+        int state(final long site) {
+            return states.getByte(site) & 0xFF;
+        }
+
+        @Override
+        void setState(final long site, final int state) {
+            states.putByte(site, (byte) state);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+/**
+ * The geometry of a percolation system: which sites exist and which are
+ * neighbours. Rows run from the top (row 0) to the bottom (row height - 1),
+ * and the system percolates when the top row connects to the bottom row.
+ * Columns (and the depth of a cubic lattice) may wrap around.
+ *
+ * Sites are numbered row by row, a row being depth planes of width sites:
+ * site = (row * depth + z) * width + column.
+ *
+ * Every kind of lattice is handled by a switch on this final class, so the
+ * hot loops never dispatch through an interface.
+ *
+ * @author Qiangqiang Gu
+ */
+public final class Lattice {
+    // the most neighbours a site has, on the triangular and cubic lattices
+    public static final int MAX_DEGREE = 6;
+    private static final int NONE = -1;
+
+    private final Kind kind;
+    private final int width;
+    private final int height;
+    private final int depth;
+    private final boolean periodic;
+    private final int plane;
+    // what a site away from every boundary adds to its index to get its
+    // neighbours, in the order neighbors() writes them; honeycomb sites
+    // that link up use upOffsets instead
+    private final int[] offsets;
+    private final int[] upOffsets;
+
+    /**
+     * The supported neighbourhoods.
+     */
+    public enum Kind {
+        /** four neighbours: left, right, up, down */
+        SQUARE(2),
+        /** the square neighbours plus the up-right and down-left diagonals */
+        TRIANGULAR(3),
+        /** brick wall honeycomb: left, right, and up or down by parity */
+        HONEYCOMB(2),
+        /** six neighbours in three dimensions */
+        CUBIC(3);
+
+        private final int forwardDegree;
+
+        Kind(final int forwardDegree) {
+            this.forwardDegree = forwardDegree;
+        }
+    }
+
+    /**
+     * @param kind
+     * @param width sites per row
+     * @param height rows, the direction of percolation
+     * @param depth planes of a cubic lattice, 1 otherwise
+     * @param periodic whether columns (and depth) wrap around
+     */
+    public Lattice(final Kind kind, final int width, final int height,
+                   final int depth, final boolean periodic) {
+        if (kind == null) {
+            throw new NullPointerException("kind");
+        }
+        if (width <= 0) {
+            throw new IllegalArgumentException("width");
+        }
+        if (height <= 0) {
+            throw new IllegalArgumentException("height");
+        }
+        if (depth <= 0 || (kind != Kind.CUBIC && depth != 1)) {
+            throw new IllegalArgumentException("depth");
+        }
+        if (periodic && (width < 3 || (kind == Kind.CUBIC && depth < 3))) {
+            // narrower rings would connect the same two sites twice
+            throw new IllegalArgumentException("periodic");
+        }
+        if (periodic && kind == Kind.HONEYCOMB && width % 2 != 0) {
+            throw new IllegalArgumentException("width");
+        }
+        if ((long) width * height * depth * kind.forwardDegree > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("too many sites");
+        }
+        this.kind = kind;
+        this.width = width;
+        this.height = height;
+        this.depth = depth;
+        this.periodic = periodic;
+        this.plane = width * depth;
+        switch (kind) {
+            case SQUARE:
+                offsets = new int[] {-1, 1, -plane, plane};
+                break;
+            case TRIANGULAR:
+                offsets = new int[] {-1, 1, -plane, plane, 1 - plane, plane - 1};
+                break;
+            case HONEYCOMB:
+                offsets = new int[] {-1, 1, plane};
+                break;
+            case CUBIC:
+                offsets = new int[] {-1, 1, -plane, plane, -width, width};
+                break;
+            default:
+                throw new IllegalStateException(kind.name());
+        }
+        this.upOffsets = new int[] {-1, 1, -plane};
+    }
+
+    /**
+     * the N-by-N grid of {@link Percolation}
+     * @param N
+     * @return
+     */
+    public static Lattice square(final int N) {
+        return new Lattice(Kind.SQUARE, N, N, 1, false);
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public boolean isPeriodic() {
+        return periodic;
+    }
+
+    public int sites() {
+        return plane * height;
+    }
+
+    public boolean isTop(final int site) {
+        return site < plane;
+    }
+
+    public boolean isBottom(final int site) {
+        return site >= plane * (height - 1);
+    }
+
+    /**
+     * number of bonds, that is of bond slots that have a bond, counted
+     * from the dimensions without visiting the sites
+     * @return
+     */
+    public long bonds() {
+        final long rows = height;
+        // east, wrapping around when periodic
+        long eastColumns = width - 1;
+        if (periodic) {
+            eastColumns = width;
+        }
+        long count = eastColumns * rows * depth;
+        switch (kind) {
+            case SQUARE:
+                return count + (rows - 1) * plane;
+            case TRIANGULAR:
+                // south and south west, which needs a west neighbour
+                return count + (rows - 1) * plane + (rows - 1) * eastColumns;
+            case HONEYCOMB:
+                // south from the sites that link down, row + column even
+                for (int row = 0; row < height - 1; row++) {
+                    count += (width + 1 - row % 2) / 2;
+                }
+                return count;
+            case CUBIC:
+                long backPlanes = depth - 1;
+                if (periodic) {
+                    backPlanes = depth;
+                }
+                return count + (rows - 1) * plane + backPlanes * width * rows;
+            default:
+                throw new IllegalStateException(kind.name());
+        }
+    }
+
+    /**
+     * bonds are numbered site * forwardDegree() + k, k being the k-th
+     * neighbour of the site that comes after it; some slots have no bond
+     * @return
+     */
+    public int forwardDegree() {
+        return kind.forwardDegree;
+    }
+
+    /**
+     * write the neighbours of a site into the given array
+     * @param site
+     * @param neighbors at least MAX_DEGREE long
+     * @return the number of neighbours written
+     */
+    public int neighbors(final int site, final int[] neighbors) {
+        final int column = site % width;
+        if (column > 0 && column < width - 1 && site >= plane
+            && site < plane * (height - 1)) {
+            int[] shifts = offsets;
+            if (kind == Kind.HONEYCOMB && (site / plane + column) % 2 != 0) {
+                shifts = upOffsets;
+            }
+            if (kind != Kind.CUBIC || isInnerPlane(site)) {
+                for (int i = 0; i < shifts.length; i++) {
+                    neighbors[i] = site + shifts[i];
+                }
+                return shifts.length;
+            }
+        }
+        // on a boundary: every neighbour on its own, wrapping as needed
+        int count = 0;
+        count = add(neighbors, count, west(site));
+        count = add(neighbors, count, east(site));
+        switch (kind) {
+            case SQUARE:
+                count = add(neighbors, count, north(site));
+                count = add(neighbors, count, south(site));
+                break;
+            case TRIANGULAR:
+                count = add(neighbors, count, north(site));
+                count = add(neighbors, count, south(site));
+                count = add(neighbors, count, north(east(site)));
+                count = add(neighbors, count, south(west(site)));
+                break;
+            case HONEYCOMB:
+                count = add(neighbors, count, vertical(site));
+                break;
+            case CUBIC:
+                count = add(neighbors, count, north(site));
+                count = add(neighbors, count, south(site));
+                count = add(neighbors, count, front(site));
+                count = add(neighbors, count, back(site));
+                break;
+            default:
+                throw new IllegalStateException(kind.name());
+        }
+        return count;
+    }
+
+    /**
+     * the other end of bond slot k of a site
+     * @param site
+     * @param k in [0, forwardDegree())
+     * @return the neighbour, or -1 when the slot has no bond
+     */
+    public int forwardNeighbor(final int site, final int k) {
+        if (k == 0) {
+            return east(site);
+        }
+        switch (kind) {
+            case SQUARE:
+                return south(site);
+            case TRIANGULAR:
+                if (k == 1) {
+                    return south(site);
+                }
+                return south(west(site));
+            case HONEYCOMB:
+                if (isUpward(site)) {
+                    return NONE;
+                }
+                return south(site);
+            case CUBIC:
+                if (k == 1) {
+                    return south(site);
+                }
+                return back(site);
+            default:
+                throw new IllegalStateException(kind.name());
+        }
+    }
+
+    private static int add(final int[] neighbors, final int count, final int site) {
+        if (site == NONE) {
+            return count;
+        }
+        neighbors[count] = site;
+        return count + 1;
+    }
+
+    private int west(final int site) {
+        if (site == NONE) {
+            return NONE;
+        }
+        if (site % width > 0) {
+            return site - 1;
+        }
+        if (periodic) {
+            return site + width - 1;
+        }
+        return NONE;
+    }
+
+    private int east(final int site) {
+        if (site == NONE) {
+            return NONE;
+        }
+        if (site % width < width - 1) {
+            return site + 1;
+        }
+        if (periodic) {
+            return site - width + 1;
+        }
+        return NONE;
+    }
+
+    private int north(final int site) {
+        if (site == NONE || site < plane) {
+            return NONE;
+        }
+        return site - plane;
+    }
+
+    private int south(final int site) {
+        if (site == NONE || site >= plane * (height - 1)) {
+            return NONE;
+        }
+        return site + plane;
+    }
+
+    private int front(final int site) {
+        final int z = site % plane / width;
+        if (z > 0) {
+            return site - width;
+        }
+        if (periodic) {
+            return site + plane - width;
+        }
+        return NONE;
+    }
+
+    private int back(final int site) {
+        final int z = site % plane / width;
+        if (z < depth - 1) {
+            return site + width;
+        }
+        if (periodic) {
+            return site - plane + width;
+        }
+        return NONE;
+    }
+
+    private boolean isInnerPlane(final int site) {
+        final int z = site % plane / width;
+        return z > 0 && z < depth - 1;
+    }
+
+    // honeycomb sites link up when row + column is odd, down otherwise
+    private boolean isUpward(final int site) {
+        return (site / plane + site % width) % 2 != 0;
+    }
+
+    private int vertical(final int site) {
+        if (isUpward(site)) {
+            return north(site);
+        }
+        return south(site);
+    }
+}
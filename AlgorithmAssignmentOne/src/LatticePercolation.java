@@ -0,0 +1,221 @@
+import java.util.Arrays;
+
+/**
+ * Site or bond percolation over any {@link Lattice}, using the flagged union
+ * find of {@link CompactPercolation}. The elements that get opened are the
+ * sites in site percolation and the bond slots in bond percolation, where
+ * every site is present and only the bonds between them are random.
+ *
+ * @author Qiangqiang Gu
+ */
+public class LatticePercolation {
+    private static final int OPEN = FlaggedUnionFind.OPEN;
+    private static final int TOP = FlaggedUnionFind.TOP;
+    private static final int BOTTOM = FlaggedUnionFind.BOTTOM;
+    private static final int CONNECTED = FlaggedUnionFind.CONNECTED;
+
+    private final Lattice lattice;
+    private final boolean bonds;
+    private final FlaggedUnionFind sites;
+    private final int siteCount;
+    private final long[] openBonds;
+    private final int[] neighbors = new int[Lattice.MAX_DEGREE];
+    private final int elements;
+    private final int validElements;
+    private int openElements;
+    private int percolatedAt = -1;
+
+    /**
+     * create a system with every site (or every bond) closed
+     * @param lattice
+     * @param bonds bond percolation instead of site percolation
+     */
+    public LatticePercolation(final Lattice lattice, final boolean bonds) {
+        if (lattice == null) {
+            throw new NullPointerException("lattice");
+        }
+        this.lattice = lattice;
+        this.bonds = bonds;
+        siteCount = lattice.sites();
+        sites = FlaggedUnionFind.onHeap(siteCount);
+        if (bonds) {
+            elements = siteCount * lattice.forwardDegree();
+            openBonds = new long[(elements + 63) >>> 6];
+            validElements = (int) lattice.bonds();
+        } else {
+            elements = siteCount;
+            openBonds = null;
+            validElements = siteCount;
+        }
+        reset();
+    }
+
+    public Lattice lattice() {
+        return lattice;
+    }
+
+    public boolean isBondPercolation() {
+        return bonds;
+    }
+
+    /**
+     * number of element indices, including bond slots without a bond
+     * @return
+     */
+    public int elements() {
+        return elements;
+    }
+
+    /**
+     * number of elements that can actually be opened
+     * @return
+     */
+    public int validElements() {
+        return validElements;
+    }
+
+    /**
+     * does the element exist? Every site does, bond slots past the lattice
+     * boundary do not
+     * @param element
+     * @return
+     */
+    public boolean isValid(final int element) {
+        validate(element);
+        if (!bonds) {
+            return true;
+        }
+        final int degree = lattice.forwardDegree();
+        return lattice.forwardNeighbor(element / degree, element % degree) >= 0;
+    }
+
+    public boolean isOpen(final int element) {
+        validate(element);
+        if (bonds) {
+            return (openBonds[element >>> 6] & (1L << element)) != 0;
+        }
+        return sites.isOpen(element);
+    }
+
+    /**
+     * open a site or a bond
+     * @param element
+     * @return false if it was already open or does not exist
+     */
+    public boolean open(final int element) {
+        if (bonds) {
+            return openBond(element);
+        }
+        return openSite(element);
+    }
+
+    /**
+     * is the site open and connected to the top row?
+     * @param site
+     * @return
+     */
+    public boolean isFull(final int site) {
+        if (site < 0 || site >= siteCount) {
+            throw new IndexOutOfBoundsException("site");
+        }
+        return sites.isOpen(site) && (sites.flags(site) & TOP) != 0;
+    }
+
+    public boolean percolates() {
+        return percolatedAt >= 0;
+    }
+
+    /**
+     * number of open sites, or open bonds
+     * @return
+     */
+    public int openElements() {
+        return openElements;
+    }
+
+    /**
+     * number of open elements when the system first percolated
+     * @return -1 if it does not percolate yet
+     */
+    public int percolatedAt() {
+        return percolatedAt;
+    }
+
+    // close every element again, reusing the existing storage
+    public void reset() {
+        openElements = 0;
+        percolatedAt = -1;
+        if (!bonds) {
+            sites.clear();
+            return;
+        }
+        Arrays.fill(openBonds, 0L);
+        for (int site = 0; site < siteCount; site++) {
+            sites.makeSet(site, siteFlags(site));
+            // a single row lattice percolates without any bond
+            if (sites.flags(site) == CONNECTED) {
+                percolatedAt = 0;
+            }
+        }
+    }
+
+    private boolean openSite(final int site) {
+        validate(site);
+        if (sites.isOpen(site)) {
+            return false;
+        }
+        openElements++;
+        sites.makeSet(site, siteFlags(site));
+        final int count = lattice.neighbors(site, neighbors);
+        for (int i = 0; i < count; i++) {
+            final int neighbor = neighbors[i];
+            if (sites.isOpen(neighbor)) {
+                sites.union(site, neighbor);
+            }
+        }
+        checkPercolation(site);
+        return true;
+    }
+
+    private boolean openBond(final int bond) {
+        validate(bond);
+        final long mask = 1L << bond;
+        if ((openBonds[bond >>> 6] & mask) != 0) {
+            return false;
+        }
+        final int degree = lattice.forwardDegree();
+        final int site = bond / degree;
+        final int neighbor = lattice.forwardNeighbor(site, bond % degree);
+        if (neighbor < 0) {
+            return false;
+        }
+        openBonds[bond >>> 6] |= mask;
+        openElements++;
+        sites.union(site, neighbor);
+        checkPercolation(site);
+        return true;
+    }
+
+    private void checkPercolation(final int site) {
+        if (percolatedAt < 0 && sites.flags(site) == CONNECTED) {
+            percolatedAt = openElements;
+        }
+    }
+
+    private int siteFlags(final int site) {
+        int flags = OPEN;
+        if (lattice.isTop(site)) {
+            flags |= TOP;
+        }
+        if (lattice.isBottom(site)) {
+            flags |= BOTTOM;
+        }
+        return flags;
+    }
+
+    private void validate(final int element) {
+        if (element < 0 || element >= elements) {
+            throw new IndexOutOfBoundsException("element");
+        }
+    }
+}
@@ -0,0 +1,150 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The {@link CompactPercolation} layout kept outside the Java heap, so grids
+ * far beyond the heap size (and beyond Integer.MAX_VALUE sites) only need
+ * enough RAM, or disk when the storage is a mapped file. Sites are long
+ * indexed; parents are stored as unsigned ints, which caps N at 65535.
+ * Direct storage is limited by -XX:MaxDirectMemorySize.
+ *
+ * @author Qiangqiang Gu
+ */
+public class OffHeapPercolation implements PercolationSystem {
+    // largest N whose N * N sites fit in an unsigned int parent
+    public static final int MAX_SIZE = 65535;
+    private static final int OPEN = FlaggedUnionFind.OPEN;
+    private static final int TOP = FlaggedUnionFind.TOP;
+    private static final int BOTTOM = FlaggedUnionFind.BOTTOM;
+    private static final int CONNECTED = FlaggedUnionFind.CONNECTED;
+
+    private final int size;
+    private final FlaggedUnionFind sites;
+    private long openSites;
+    private long percolatedAt = -1;
+
+    // create N-by-N grid in direct memory, with all sites blocked
+    public OffHeapPercolation(int N) {
+        checkSize(N);
+        size = N;
+        final long amount = (long) N * N;
+        sites = FlaggedUnionFind.offHeap(new SegmentedBuffer(amount * 4),
+                                         new SegmentedBuffer(amount));
+    }
+
+    /**
+     * create N-by-N grid mapped onto the given files, with all sites blocked
+     * @param N
+     * @param parentFile grows to 4 * N * N bytes
+     * @param stateFile grows to N * N bytes
+     * @throws IOException
+     */
+    public OffHeapPercolation(int N, File parentFile, File stateFile)
+        throws IOException {
+        checkSize(N);
+        size = N;
+        final long amount = (long) N * N;
+        sites = FlaggedUnionFind.offHeap(
+            new SegmentedBuffer(amount * 4, parentFile),
+            new SegmentedBuffer(amount, stateFile));
+    }
+
+    // open site (row i, column j) if it is not open already
+    public void open(int i, int j) {
+        openAndCheck(i, j);
+    }
+
+    // open site (row i, column j); true if that made the system percolate
+    // for the first time
+    public boolean openAndCheck(int i, int j) {
+        validate(i, j);
+        final long index = getIndex(i, j);
+        if (sites.isOpen(index)) {
+            return false;
+        }
+        openSites++;
+        int flags = OPEN;
+        if (i == 1) {
+            flags |= TOP;
+        }
+        if (i == size) {
+            flags |= BOTTOM;
+        }
+        sites.makeSet(index, flags);
+        if (j > 1) {
+            tryUnion(index, index - 1);
+        }
+        if (j < size) {
+            tryUnion(index, index + 1);
+        }
+        if (i > 1) {
+            tryUnion(index, index - size);
+        }
+        if (i < size) {
+            tryUnion(index, index + size);
+        }
+        if (percolatedAt < 0 && sites.flags(index) == CONNECTED) {
+            percolatedAt = openSites;
+            return true;
+        }
+        return false;
+    }
+
+    // is site (row i, column j) open?
+    public boolean isOpen(int i, int j) {
+        validate(i, j);
+        return sites.isOpen(getIndex(i, j));
+    }
+
+    // is site (row i, column j) full?
+    public boolean isFull(int i, int j) {
+        validate(i, j);
+        final long index = getIndex(i, j);
+        return sites.isOpen(index) && (sites.flags(index) & TOP) != 0;
+    }
+
+    // does the system percolate?
+    public boolean percolates() {
+        return percolatedAt >= 0;
+    }
+
+    // number of open sites
+    public long openSites() {
+        return openSites;
+    }
+
+    // number of open sites when the system first percolated, -1 before
+    public long percolatedAt() {
+        return percolatedAt;
+    }
+
+    // block every site again; parents of blocked sites are never read
+    public void reset() {
+        sites.clear();
+        openSites = 0;
+        percolatedAt = -1;
+    }
+
+    private void tryUnion(final long index, final long neighbor) {
+        if (sites.isOpen(neighbor)) {
+            sites.union(index, neighbor);
+        }
+    }
+
+    private void validate(int i, int j) {
+        if (i <= 0 || i > size)
+            throw new IndexOutOfBoundsException("i");
+        if (j <= 0 || j > size)
+            throw new IndexOutOfBoundsException("j");
+    }
+
+    private long getIndex(int i, int j) {
+        return (long) (i - 1) * size + j - 1;
+    }
+
+    private static void checkSize(final int N) {
+        if (N <= 0 || N > MAX_SIZE) {
+            throw new IllegalArgumentException("N");
+        }
+    }
+}
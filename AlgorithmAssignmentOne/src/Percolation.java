@@ -1,15 +1,19 @@
+import java.util.Arrays;
+
 /**
  *
  * @author Qiangqiang Gu
  */
-public class Percolation {
-    private WeightedQuickUnionUF percolateUnion;
-    private WeightedQuickUnionUF topUnion;
+public class Percolation implements PercolationSystem {
+    private final ResettableUnionFind percolateUnion;
+    private final ResettableUnionFind topUnion;
     private boolean[] opened;
     private int top;
     private int bottom;
     private int size;
     private int amount;
+    private int openSites;
+    private int percolatedAt = -1;
 
     // create N-by-N grid, with all sites blocked
     public Percolation(int N) {
@@ -21,15 +25,34 @@ public class Percolation {
         top = amount + 1;
         bottom = top + 1;
         opened = new boolean[amount];
-        percolateUnion = new WeightedQuickUnionUF(bottom + 1);
-        topUnion = new WeightedQuickUnionUF(amount + 1);
+        percolateUnion = new ResettableUnionFind(bottom + 1);
+        topUnion = new ResettableUnionFind(amount + 1);
+    }
+
+    // block every site again, reusing all arrays
+    public void reset() {
+        Arrays.fill(opened, false);
+        percolateUnion.reset();
+        topUnion.reset();
+        openSites = 0;
+        percolatedAt = -1;
     }
 
     // open site (row i, column j) if it is not open already
     public void open(int i, int j) {
+        openAndCheck(i, j);
+    }
+
+    // open site (row i, column j); true if that made the system percolate
+    // for the first time
+    public boolean openAndCheck(int i, int j) {
         validate(i, j);
         final int index = getIndex(i, j);
+        if (opened[index]) {
+            return false;
+        }
         opened[index] = true;
+        openSites++;
         if (index < size) {
             percolateUnion.union(index, top);
             topUnion.union(index, amount);
@@ -40,6 +63,14 @@ public class Percolation {
         tryUnion(i, j, i + 1, j);
         if (index >= amount - size)
             percolateUnion.union(index, bottom);
+        // only an opening can make the system percolate: the two finds
+        // of connected() run on every new site until it does, and
+        // percolates() reads the answer kept here
+        if (percolatedAt < 0 && percolateUnion.connected(top, bottom)) {
+            percolatedAt = openSites;
+            return true;
+        }
+        return false;
     }
     
     // is site (row i, column j) open?
@@ -56,7 +87,17 @@ public class Percolation {
     
     // does the system percolate?
     public boolean percolates() {
-        return percolateUnion.connected(top, bottom);
+        return percolatedAt >= 0;
+    }
+
+    // number of open sites
+    public long openSites() {
+        return openSites;
+    }
+
+    // number of open sites when the system first percolated, -1 before
+    public long percolatedAt() {
+        return percolatedAt;
     }
 
     // test client (optional)
@@ -0,0 +1,35 @@
+/**
+ * The percolation implementations a trial can run on.
+ *
+ * @author Qiangqiang Gu
+ */
+public enum PercolationBackend {
+    /** two weighted quick union structures, see {@link Percolation} */
+    DUAL_UNION {
+        @Override
+        public PercolationSystem create(final int N) {
+            return new Percolation(N);
+        }
+    },
+    /** one union find with top/bottom flags, see {@link CompactPercolation} */
+    COMPACT {
+        @Override
+        public PercolationSystem create(final int N) {
+            return new CompactPercolation(N);
+        }
+    },
+    /** the compact layout in direct memory, see {@link OffHeapPercolation} */
+    OFF_HEAP {
+        @Override
+        public PercolationSystem create(final int N) {
+            return new OffHeapPercolation(N);
+        }
+    };
+
+    /**
+     * create an N-by-N grid, with all sites blocked
+     * @param N
+     * @return
+     */
+    public abstract PercolationSystem create(int N);
+}
@@ -0,0 +1,40 @@
+/**
+ * Compares the ways of running percolation trials on a single thread.
+ * Execution: java PercolationBenchmark N T [seed]
+ *
+ * @author Qiangqiang Gu
+ */
+public class PercolationBenchmark {
+
+    public static void main(String[] args) {
+        final int N = Integer.parseInt(args[0]);
+        final int T = Integer.parseInt(args[1]);
+        long seed = StdRandom.getSeed();
+        if (args.length > 2) {
+            seed = Long.parseLong(args[2]);
+        }
+        StdOut.printf("%-12s %-12s %14s %14s %10s %10s%n", "backend",
+                      "sampling", "draws", "draws/trial", "seconds", "mean");
+        for (final PercolationBackend backend : PercolationBackend.values()) {
+            for (final Sampling sampling : Sampling.values()) {
+                benchmark(N, T, seed, sampling, backend);
+            }
+        }
+    }
+
+    private static void benchmark(int N, int T, long seed, Sampling sampling,
+                                  PercolationBackend backend) {
+        final PercolationTrial experiment =
+            new PercolationTrial(N, sampling, backend);
+        final double[] thresholds = new double[T];
+        final Stopwatch stopwatch = new Stopwatch();
+        for (int trial = 0; trial < T; trial++) {
+            thresholds[trial] = experiment.run(seed, trial);
+        }
+        final double elapsed = stopwatch.elapsedTime();
+        StdOut.printf("%-12s %-12s %14d %14.1f %10.3f %10.6f%n",
+                      backend, sampling, experiment.draws(),
+                      experiment.draws() / (double) T, elapsed,
+                      StdStats.mean(thresholds));
+    }
+}
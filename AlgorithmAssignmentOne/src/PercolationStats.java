@@ -1,12 +1,34 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 /**
  *
  * @author Qiangqiang Gu
  */
 public class PercolationStats {
+    // trial ranges are split into roughly this many tasks per worker thread
+    private static final int TASKS_PER_THREAD = 8;
+    // trials per batch of an open ended run, fixed so that where the run
+    // stops does not depend on the number of threads
+    private static final int BATCH = 64;
+    // least time between two saves of the main method's checkpoints
+    private static final long CHECKPOINT_MILLIS = 60000;
+    private final int trials;
+    private final long[] counts;
     private final double mean;
     private final double stddev;
     private final double confidenceLo;
     private final double confidenceHi;
+    // per trial, null unless the clusters were analysed
+    private final long[] clusterCounts;
+    private final long[] largestClusters;
+    private final long[] spanningClusters;
+    private final long[] spanningSizes;
 
     /**
      * Perform T independent experiments on an N-by-N grid
@@ -14,22 +36,200 @@ public class PercolationStats {
      * @param T 
      */
     public PercolationStats(int N, int T) {
-        if (N <= 0) {
-            throw new IllegalArgumentException("N");
-        }
-        if (T <= 0) {
-            throw new IllegalArgumentException("T");
-        }
-        int size = T;
-        final double[] thresholds = new double[T];
-        while (--size >= 0) {
-            thresholds[size] = fillTillPercolates(new Percolation(N), N);
+        this(N, T, StdRandom.getSeed(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Perform T independent experiments on an N-by-N grid with the given
+     * number of worker threads. Results only depend on the seed.
+     * @param N
+     * @param T
+     * @param seed
+     * @param threads
+     */
+    public PercolationStats(int N, int T, long seed, int threads) {
+        this(simulate(N, T, seed, threads));
+    }
+
+    /**
+     * Perform T independent experiments on an N-by-N grid inside the given pool.
+     * @param N
+     * @param T
+     * @param seed
+     * @param pool
+     */
+    public PercolationStats(int N, int T, long seed, ForkJoinPool pool) {
+        this(N, T, seed, pool, Sampling.REJECTION);
+    }
+
+    /**
+     * Perform T independent experiments on an N-by-N grid inside the given
+     * pool, choosing sites to open with the given sampling.
+     * @param N
+     * @param T
+     * @param seed
+     * @param pool
+     * @param sampling
+     */
+    public PercolationStats(int N, int T, long seed, ForkJoinPool pool,
+                            Sampling sampling) {
+        this(N, T, seed, pool, sampling, PercolationBackend.DUAL_UNION);
+    }
+
+    /**
+     * Perform T independent experiments on an N-by-N grid inside the given
+     * pool, with the given sampling and percolation backend.
+     * @param N
+     * @param T
+     * @param seed
+     * @param pool
+     * @param sampling
+     * @param backend
+     */
+    public PercolationStats(int N, int T, long seed, ForkJoinPool pool,
+                            Sampling sampling, PercolationBackend backend) {
+        this(N, T, seed, pool, sampling, backend, false);
+    }
+
+    /**
+     * Perform T independent experiments on an N-by-N grid inside the given
+     * pool, with the given sampling and percolation backend, optionally
+     * analysing the clusters of every grid as it first percolates.
+     * @param N
+     * @param T
+     * @param seed
+     * @param pool
+     * @param sampling
+     * @param backend
+     * @param clusters
+     */
+    public PercolationStats(int N, int T, long seed, ForkJoinPool pool,
+                            Sampling sampling, PercolationBackend backend,
+                            boolean clusters) {
+        this(simulate(T, seed, pool, new PercolationTrial(N, sampling, backend),
+                      clusters));
+    }
+
+    /**
+     * Perform T independent experiments on an N-by-N grid inside the given
+     * pool, saving the finished trials to the checkpoint as it goes. A run
+     * that finds a checkpoint of the same experiment continues from it, with
+     * the same results as if it had never stopped.
+     * @param N
+     * @param T
+     * @param seed
+     * @param pool
+     * @param sampling
+     * @param backend
+     * @param checkpoint
+     * @throws IOException
+     */
+    public PercolationStats(int N, int T, long seed, ForkJoinPool pool,
+                            Sampling sampling, PercolationBackend backend,
+                            Checkpoint checkpoint) throws IOException {
+        this(simulate(T, seed, pool, new PercolationTrial(N, sampling, backend),
+                      checkpoint));
+    }
+
+    /**
+     * Perform experiments on an N-by-N grid inside the given pool, in
+     * batches, until the stopping rule is satisfied.
+     * @param N
+     * @param rule
+     * @param seed
+     * @param pool
+     * @param sampling
+     * @param backend
+     */
+    public PercolationStats(int N, StoppingRule rule, long seed, ForkJoinPool pool,
+                            Sampling sampling, PercolationBackend backend) {
+        this(simulate(rule, seed, pool, new PercolationTrial(N, sampling, backend)));
+    }
+
+    /**
+     * Perform T independent site or bond percolation experiments on any
+     * lattice inside the given pool.
+     * @param lattice
+     * @param bonds
+     * @param T
+     * @param seed
+     * @param pool
+     * @param sampling
+     */
+    public PercolationStats(Lattice lattice, boolean bonds, int T, long seed,
+                            ForkJoinPool pool, Sampling sampling) {
+        this(lattice, bonds, T, seed, pool, sampling, false);
+    }
+
+    /**
+     * Perform T independent site or bond percolation experiments on any
+     * lattice inside the given pool, optionally analysing the clusters of
+     * every system as it first percolates.
+     * @param lattice
+     * @param bonds
+     * @param T
+     * @param seed
+     * @param pool
+     * @param sampling
+     * @param clusters
+     */
+    public PercolationStats(Lattice lattice, boolean bonds, int T, long seed,
+                            ForkJoinPool pool, Sampling sampling,
+                            boolean clusters) {
+        this(simulate(T, seed, pool,
+                      new PercolationTrial(lattice, bonds, sampling), clusters));
+    }
+
+    /**
+     * Perform site or bond percolation experiments on any lattice inside the
+     * given pool, in batches, until the stopping rule is satisfied.
+     * @param lattice
+     * @param bonds
+     * @param rule
+     * @param seed
+     * @param pool
+     * @param sampling
+     */
+    public PercolationStats(Lattice lattice, boolean bonds, StoppingRule rule,
+                            long seed, ForkJoinPool pool, Sampling sampling) {
+        this(simulate(rule, seed, pool,
+                      new PercolationTrial(lattice, bonds, sampling)));
+    }
+
+    private PercolationStats(final Simulation simulation) {
+        counts = simulation.counts;
+        trials = counts.length;
+        if (simulation.estimate == null) {
+            mean = StdStats.mean(simulation.thresholds);
+            stddev = StdStats.stddev(simulation.thresholds);
+        } else {
+            mean = simulation.estimate.mean();
+            stddev = simulation.estimate.stddev();
         }
-        mean = StdStats.mean(thresholds);
-        stddev = StdStats.stddev(thresholds);
-        double confidenceWidth = 1.96 * stddev / Math.sqrt(thresholds.length);
+        double confidenceWidth = 1.96 * stddev / Math.sqrt(trials);
         this.confidenceLo = mean - confidenceWidth;
         this.confidenceHi = mean + confidenceWidth;
+        clusterCounts = simulation.clusterCounts;
+        largestClusters = simulation.largestClusters;
+        spanningClusters = simulation.spanningClusters;
+        spanningSizes = simulation.spanningSizes;
+    }
+
+    /**
+     * number of experiments performed
+     * @return
+     */
+    public int trials() {
+        return trials;
+    }
+
+    /**
+     * exact number of open sites (or bonds) at which each trial first
+     * percolated, in trial order
+     * @return
+     */
+    public long[] percolationCounts() {
+        return counts.clone();
     }
     
     /**
@@ -66,14 +266,101 @@ public class PercolationStats {
         return confidenceHi;
     }
     
+    /**
+     * number of clusters in each trial as it first percolated, in trial
+     * order
+     * @return
+     */
+    public long[] clusterCounts() {
+        return analysed(clusterCounts).clone();
+    }
+
+    /**
+     * size of the largest cluster of each trial, in trial order
+     * @return
+     */
+    public long[] largestClusters() {
+        return analysed(largestClusters).clone();
+    }
+
+    /**
+     * number of spanning clusters of each trial, in trial order
+     * @return
+     */
+    public long[] spanningClusters() {
+        return analysed(spanningClusters).clone();
+    }
+
+    /**
+     * size of the largest spanning cluster of each trial, in trial order
+     * @return
+     */
+    public long[] spanningClusterSizes() {
+        return analysed(spanningSizes).clone();
+    }
+
+    /**
+     * sample mean of the number of clusters
+     * @return
+     */
+    public double meanClusters() {
+        return mean(analysed(clusterCounts));
+    }
+
+    /**
+     * sample mean of the size of the largest cluster
+     * @return
+     */
+    public double meanLargestCluster() {
+        return mean(analysed(largestClusters));
+    }
+
+    /**
+     * sample mean of the size of the largest spanning cluster
+     * @return
+     */
+    public double meanSpanningClusterSize() {
+        return mean(analysed(spanningSizes));
+    }
+
     /**
      * test client (described below)
      * @param args 
+     * @throws IOException
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         final int N = Integer.parseInt(args[0]);
         final int T = Integer.parseInt(args[1]);
-        PercolationStats stats = new PercolationStats(N, T);
+        long seed = StdRandom.getSeed();
+        int threads = Runtime.getRuntime().availableProcessors();
+        Sampling sampling = Sampling.REJECTION;
+        PercolationBackend backend = PercolationBackend.DUAL_UNION;
+        if (args.length > 2) {
+            seed = Long.parseLong(args[2]);
+        }
+        if (args.length > 3) {
+            threads = Integer.parseInt(args[3]);
+        }
+        if (args.length > 4) {
+            sampling = Sampling.valueOf(args[4].toUpperCase());
+        }
+        if (args.length > 5) {
+            backend = PercolationBackend.valueOf(args[5].toUpperCase());
+        }
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        PercolationStats stats;
+        try {
+            if (args.length > 6) {
+                final Checkpoint checkpoint =
+                    new Checkpoint(new File(args[6]), CHECKPOINT_MILLIS);
+                stats = new PercolationStats(N, T, seed, pool, sampling, backend,
+                                             checkpoint);
+            } else {
+                stats = new PercolationStats(N, T, seed, pool, sampling, backend);
+            }
+        } finally {
+            pool.shutdown();
+        }
         StdOut.printf("mean\t=%s", stats.mean());
         StdOut.println();
         StdOut.printf("stddev\t=%s", stats.stddev());
@@ -81,18 +368,223 @@ public class PercolationStats {
         String format = "95%% confidence interval\t=%s, %s";
         StdOut.printf(format, stats.confidenceLo(), stats.confidenceHi());
     }
-    
-    private double fillTillPercolates(Percolation percolation, int N) {
-        double count = 0;
-        int row, column = 0;
-        while (!percolation.percolates()) {
-            do {
-                row = StdRandom.uniform(N) + 1;
-                column = StdRandom.uniform(N) + 1;
-            } while (percolation.isOpen(row, column));
-            percolation.open(row, column);
-            count++;
-        }
-        return count / (N * N);
+
+    private static Simulation simulate(int N, int T, long seed, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads");
+        }
+        final PercolationTrial template =
+            new PercolationTrial(N, Sampling.REJECTION);
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return simulate(T, seed, pool, template);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Simulation simulate(int T, long seed, ForkJoinPool pool,
+                                       PercolationTrial template) {
+        return simulate(T, seed, pool, template, false);
+    }
+
+    private static Simulation simulate(int T, long seed, ForkJoinPool pool,
+                                       PercolationTrial template,
+                                       boolean clusters) {
+        if (T <= 0) {
+            throw new IllegalArgumentException("T");
+        }
+        final Simulation simulation = new Simulation(seed, template, T);
+        if (clusters) {
+            simulation.clusterCounts = new long[T];
+            simulation.largestClusters = new long[T];
+            simulation.spanningClusters = new long[T];
+            simulation.spanningSizes = new long[T];
+        }
+        simulation.grain = grain(T, pool);
+        pool.invoke(new Trials(simulation, 0, T));
+        return simulation;
+    }
+
+    private static Simulation simulate(int T, long seed, ForkJoinPool pool,
+                                       PercolationTrial template,
+                                       Checkpoint checkpoint) throws IOException {
+        if (T <= 0) {
+            throw new IllegalArgumentException("T");
+        }
+        if (checkpoint == null) {
+            throw new NullPointerException("checkpoint");
+        }
+        final String configuration = template.configuration();
+        final long[] saved = checkpoint.load(configuration, seed, T);
+        final Simulation simulation = new Simulation(seed, template, T);
+        for (int trial = 0; trial < saved.length; trial++) {
+            simulation.counts[trial] = saved[trial];
+            simulation.thresholds[trial] = saved[trial] / simulation.elements;
+        }
+        // trials run in chunks, with a chance to save between two of them
+        final int chunk = Math.max(BATCH, pool.getParallelism() * TASKS_PER_THREAD);
+        simulation.grain = grain(chunk, pool);
+        int done = saved.length;
+        while (done < T) {
+            final int end = Math.min(T, done + chunk);
+            pool.invoke(new Trials(simulation, done, end));
+            done = end;
+            if (done == T || checkpoint.isDue()) {
+                checkpoint.save(configuration, seed, T, simulation.counts, done);
+            }
+        }
+        return simulation;
+    }
+
+    private static Simulation simulate(StoppingRule rule, long seed,
+                                       ForkJoinPool pool,
+                                       PercolationTrial template) {
+        if (rule == null) {
+            throw new NullPointerException("rule");
+        }
+        final Simulation simulation = new Simulation(seed, template, BATCH);
+        simulation.grain = grain(BATCH, pool);
+        final ThresholdEstimator estimate = new ThresholdEstimator();
+        long[] counts = new long[BATCH];
+        final long start = System.nanoTime();
+        long elapsedMillis;
+        do {
+            final int done = (int) estimate.count();
+            final int batch = Math.min(BATCH, rule.maxTrials() - done);
+            simulation.offset = done;
+            pool.invoke(new Trials(simulation, done, done + batch));
+            if (done + batch > counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(done + batch, 2 * done));
+            }
+            System.arraycopy(simulation.counts, 0, counts, done, batch);
+            // added in trial order, so the estimate is the same on any pool
+            for (int i = 0; i < batch; i++) {
+                estimate.add(simulation.thresholds[i]);
+            }
+            elapsedMillis = (System.nanoTime() - start) / 1000000;
+            // the cap holds even for a rule whose shouldStop ignores it
+        } while (estimate.count() < rule.maxTrials()
+                 && !rule.shouldStop(estimate, elapsedMillis));
+        simulation.estimate = estimate;
+        simulation.counts = Arrays.copyOf(counts, (int) estimate.count());
+        return simulation;
+    }
+
+    private static long[] analysed(long[] metric) {
+        if (metric == null) {
+            throw new IllegalStateException("clusters were not analysed");
+        }
+        return metric;
+    }
+
+    private static double mean(long[] values) {
+        double sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    private static int grain(int trials, ForkJoinPool pool) {
+        return Math.max(1, trials / (pool.getParallelism() * TASKS_PER_THREAD));
+    }
+
+    /**
+     * What every trial of one run shares.
+     */
+    private static class Simulation {
+        private final long seed;
+        private final double elements;
+        private final PercolationTrial template;
+        // trials with their grids, made as tasks need them and owned by
+        // this run alone, so they are freed with it rather than kept by
+        // the threads of a pool that outlives the run
+        private final Queue<PercolationTrial> idle =
+            new ConcurrentLinkedQueue<PercolationTrial>();
+        // thresholds[i] and counts[i] hold trial offset + i
+        private final double[] thresholds;
+        private long[] counts;
+        private int offset;
+        private int grain;
+        // set by open ended runs only
+        private ThresholdEstimator estimate;
+        // set by runs that analyse clusters, indexed by trial
+        private long[] clusterCounts;
+        private long[] largestClusters;
+        private long[] spanningClusters;
+        private long[] spanningSizes;
+
+        private Simulation(long seed, final PercolationTrial template, int slots) {
+            this.seed = seed;
+            this.elements = template.elements();
+            this.template = template;
+            this.thresholds = new double[slots];
+            this.counts = new long[slots];
+        }
+
+        // a trial no running task is using; there are never more of them
+        // than tasks running at once
+        private PercolationTrial acquire() {
+            final PercolationTrial trial = idle.poll();
+            if (trial == null) {
+                return template.copy();
+            }
+            return trial;
+        }
+
+        private void release(final PercolationTrial trial) {
+            idle.offer(trial);
+        }
+    }
+
+    /**
+     * Runs trials [lo, hi), writing each threshold into its own slot so the
+     * statistics are computed over the same sequence whatever the split.
+     */
+    private static class Trials extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Simulation simulation;
+        private final int lo;
+        private final int hi;
+
+        private Trials(Simulation simulation, int lo, int hi) {
+            this.simulation = simulation;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= simulation.grain) {
+                // one grid per running task, reset between trials
+                final PercolationTrial experiment = simulation.acquire();
+                try {
+                    for (int trial = lo; trial < hi; trial++) {
+                        final long count =
+                            experiment.openToPercolate(simulation.seed, trial);
+                        simulation.counts[trial - simulation.offset] = count;
+                        simulation.thresholds[trial - simulation.offset] =
+                            count / simulation.elements;
+                        if (simulation.clusterCounts != null) {
+                            final ClusterAnalysis clusters =
+                                experiment.clusters();
+                            simulation.clusterCounts[trial] = clusters.clusters();
+                            simulation.largestClusters[trial] = clusters.largest();
+                            simulation.spanningClusters[trial] =
+                                clusters.spanning();
+                            simulation.spanningSizes[trial] =
+                                clusters.spanningSize();
+                        }
+                    }
+                } finally {
+                    simulation.release(experiment);
+                }
+                return;
+            }
+            final int mid = (lo + hi) >>> 1;
+            invokeAll(new Trials(simulation, lo, mid),
+                      new Trials(simulation, mid, hi));
+        }
     }
 }
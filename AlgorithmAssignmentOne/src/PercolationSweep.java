@@ -0,0 +1,191 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs a whole parameter sweep of percolation experiments in one JVM and
+ * one shared thread pool, printing a line per configuration as soon as it
+ * completes.
+ * Execution: java PercolationSweep spec.txt [threads] [csv|json]
+ *
+ * The specification lists the values of each parameter; every combination
+ * of them is run, in the order given.
+ * <pre>
+ * # comments start with '#'
+ * N        100 200 400
+ * T        1000 10000
+ * seed     1 2 3
+ * sampling PERMUTATION          (optional, default REJECTION)
+ * backend  COMPACT              (optional, default DUAL_UNION)
+ * epsilon  0.0005               (optional, T becomes the trial limit)
+ * budget   60000                (optional, milliseconds per configuration)
+ * </pre>
+ * The budget bounds the open ended runs that epsilon asks for; with a
+ * fixed T every trial is run, so a budget without epsilon is rejected.
+ *
+ * @author Qiangqiang Gu
+ */
+public class PercolationSweep {
+    private static final long DEFAULT_BUDGET = Long.MAX_VALUE;
+    private static final String[] COLUMNS = {"N", "T", "seed", "sampling",
+        "backend", "trials", "mean", "stddev", "confidenceLo", "confidenceHi",
+        "seconds"};
+    private final List<Integer> sizes = new ArrayList<Integer>();
+    private final List<Integer> trials = new ArrayList<Integer>();
+    private final List<Long> seeds = new ArrayList<Long>();
+    private final List<Sampling> samplings = new ArrayList<Sampling>();
+    private final List<PercolationBackend> backends =
+        new ArrayList<PercolationBackend>();
+    private double epsilon = Double.NaN;
+    private long budget = DEFAULT_BUDGET;
+
+    /**
+     * read a sweep specification
+     * @param spec
+     * @throws IOException
+     */
+    public PercolationSweep(final File spec) throws IOException {
+        for (String line : Files.readAllLines(spec.toPath(),
+                                              StandardCharsets.UTF_8)) {
+            final int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (!line.isEmpty()) {
+                parse(line.split("\\s+"));
+            }
+        }
+        if (sizes.isEmpty()) {
+            throw new IllegalArgumentException("N");
+        }
+        if (trials.isEmpty()) {
+            throw new IllegalArgumentException("T");
+        }
+        if (budget != DEFAULT_BUDGET && Double.isNaN(epsilon)) {
+            // fixed T runs have no budget, it would be silently ignored
+            throw new IllegalArgumentException("budget without epsilon");
+        }
+        if (seeds.isEmpty()) {
+            seeds.add(StdRandom.getSeed());
+        }
+        if (samplings.isEmpty()) {
+            samplings.add(Sampling.REJECTION);
+        }
+        if (backends.isEmpty()) {
+            backends.add(PercolationBackend.DUAL_UNION);
+        }
+    }
+
+    /**
+     * run every configuration inside the pool, writing one line each
+     * @param pool
+     * @param json JSON lines instead of CSV
+     */
+    public void run(final ForkJoinPool pool, final boolean json) {
+        if (!json) {
+            print(COLUMNS, false);
+        }
+        for (final PercolationBackend backend : backends) {
+            for (final Sampling sampling : samplings) {
+                for (final int size : sizes) {
+                    for (final int count : trials) {
+                        for (final long seed : seeds) {
+                            final Stopwatch stopwatch = new Stopwatch();
+                            final PercolationStats stats = run(pool, size, count,
+                                seed, sampling, backend);
+                            final double seconds = stopwatch.elapsedTime();
+                            final Object[] values = {size, count, seed, sampling,
+                                backend, stats.trials(), stats.mean(),
+                                stats.stddev(), stats.confidenceLo(),
+                                stats.confidenceHi(), seconds};
+                            print(values, json);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        final PercolationSweep sweep = new PercolationSweep(new File(args[0]));
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean json = false;
+        if (args.length > 1) {
+            threads = Integer.parseInt(args[1]);
+        }
+        if (args.length > 2) {
+            json = "json".equalsIgnoreCase(args[2]);
+        }
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            sweep.run(pool, json);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private PercolationStats run(ForkJoinPool pool, int size, int count, long seed,
+                                 Sampling sampling, PercolationBackend backend) {
+        if (Double.isNaN(epsilon)) {
+            return new PercolationStats(size, count, seed, pool, sampling, backend);
+        }
+        final StoppingRule rule = new StoppingRule(epsilon, budget, count);
+        return new PercolationStats(size, rule, seed, pool, sampling, backend);
+    }
+
+    private void parse(final String[] tokens) {
+        final String key = tokens[0];
+        for (int i = 1; i < tokens.length; i++) {
+            final String value = tokens[i];
+            if ("N".equals(key)) {
+                sizes.add(Integer.parseInt(value));
+            } else if ("T".equals(key)) {
+                trials.add(Integer.parseInt(value));
+            } else if ("seed".equals(key)) {
+                seeds.add(Long.parseLong(value));
+            } else if ("sampling".equals(key)) {
+                samplings.add(Sampling.valueOf(value.toUpperCase()));
+            } else if ("backend".equals(key)) {
+                backends.add(PercolationBackend.valueOf(value.toUpperCase()));
+            } else if ("epsilon".equals(key)) {
+                epsilon = Double.parseDouble(value);
+            } else if ("budget".equals(key)) {
+                budget = Long.parseLong(value);
+            } else {
+                throw new IllegalArgumentException(key);
+            }
+        }
+    }
+
+    private static void print(final Object[] values, final boolean json) {
+        final StringBuilder builder = new StringBuilder();
+        if (json) {
+            builder.append('{');
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            String value = String.valueOf(values[i]);
+            if (json) {
+                builder.append('"').append(COLUMNS[i]).append("\":");
+                if (values[i] instanceof Enum) {
+                    value = '"' + value + '"';
+                } else if (values[i] instanceof Double
+                           && ((Double) values[i]).isNaN()) {
+                    value = "null";
+                }
+            }
+            builder.append(value);
+        }
+        if (json) {
+            builder.append('}');
+        }
+        StdOut.println(builder.toString());
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * The operations shared by every percolation backend. Rows and columns are
+ * numbered from 1 to N, site (1, 1) being the upper left corner.
+ *
+ * @author Qiangqiang Gu
+ */
+public interface PercolationSystem {
+
+    // open site (row i, column j) if it is not open already
+    void open(int i, int j);
+
+    // open site (row i, column j); true if that made the system percolate
+    // for the first time, so callers need not ask percolates() every step
+    boolean openAndCheck(int i, int j);
+
+    // is site (row i, column j) open?
+    boolean isOpen(int i, int j);
+
+    // is site (row i, column j) full?
+    boolean isFull(int i, int j);
+
+    // does the system percolate?
+    boolean percolates();
+
+    // number of open sites
+    long openSites();
+
+    // number of open sites when the system first percolated, -1 before
+    long percolatedAt();
+
+    // block every site again, reusing the existing storage
+    void reset();
+}
@@ -0,0 +1,259 @@
+/**
+ * One Monte Carlo experiment: open random sites of an N-by-N grid, or random
+ * sites or bonds of a {@link Lattice}, until it percolates. An instance is
+ * meant to be used by one thread at a time and reused for many trials.
+ *
+ * @author Qiangqiang Gu
+ */
+public class PercolationTrial {
+    private final int size;
+    private final Sampling sampling;
+    private final PercolationBackend backend;
+    private final Lattice lattice;
+    private final boolean bonds;
+    private final TrialRandom random = new TrialRandom(0, 0);
+    private PercolationSystem percolation;
+    private LatticePercolation system;
+    private SitePermutation permutation;
+    private ClusterAnalysis analysis;
+    private long draws;
+
+    public PercolationTrial(final int N, final Sampling sampling) {
+        this(N, sampling, PercolationBackend.DUAL_UNION);
+    }
+
+    public PercolationTrial(final int N, final Sampling sampling,
+                            final PercolationBackend backend) {
+        if (N <= 0) {
+            throw new IllegalArgumentException("N");
+        }
+        if (sampling == null) {
+            throw new NullPointerException("sampling");
+        }
+        if (backend == null) {
+            throw new NullPointerException("backend");
+        }
+        if (sampling == Sampling.PERMUTATION && N > CompactPercolation.MAX_SIZE) {
+            // the permutation is an int[] of all N * N sites
+            throw new IllegalArgumentException("N");
+        }
+        this.size = N;
+        this.sampling = sampling;
+        this.backend = backend;
+        this.lattice = null;
+        this.bonds = false;
+    }
+
+    /**
+     * site or bond percolation on any lattice, always on the compact layout
+     * @param lattice
+     * @param bonds
+     * @param sampling
+     */
+    public PercolationTrial(final Lattice lattice, final boolean bonds,
+                            final Sampling sampling) {
+        if (lattice == null) {
+            throw new NullPointerException("lattice");
+        }
+        if (sampling == null) {
+            throw new NullPointerException("sampling");
+        }
+        this.size = 0;
+        this.sampling = sampling;
+        this.backend = null;
+        this.lattice = lattice;
+        this.bonds = bonds;
+    }
+
+    /**
+     * a trial with the same configuration and its own storage, for another
+     * thread
+     * @return
+     */
+    public PercolationTrial copy() {
+        if (lattice != null) {
+            return new PercolationTrial(lattice, bonds, sampling);
+        }
+        return new PercolationTrial(size, sampling, backend);
+    }
+
+    /**
+     * number of sites (or bonds) that can be opened in one trial
+     * @return
+     */
+    public long elements() {
+        if (lattice == null) {
+            return (long) size * size;
+        }
+        if (bonds) {
+            return lattice.bonds();
+        }
+        return lattice.sites();
+    }
+
+    /**
+     * the parameters that decide the outcome of every trial; the backend is
+     * left out since all backends open the same sites
+     * @return
+     */
+    public String configuration() {
+        if (lattice == null) {
+            return "N=" + size + " " + sampling;
+        }
+        String elements = "sites";
+        if (bonds) {
+            elements = "bonds";
+        }
+        String boundary = "open";
+        if (lattice.isPeriodic()) {
+            boundary = "periodic";
+        }
+        return lattice.kind() + " " + lattice.width() + "x" + lattice.height()
+            + "x" + lattice.depth() + " " + boundary + " " + elements + " "
+            + sampling;
+    }
+
+    /**
+     * run a single trial on the stream (seed, trial), without allocating
+     * once the grid of the first trial exists
+     * @param seed
+     * @param trial
+     * @return fraction of sites open when the grid first percolates
+     */
+    public double run(final long seed, final long trial) {
+        random.reseed(seed, trial);
+        return run(random);
+    }
+
+    /**
+     * run a single trial, reusing the grid of the previous one
+     * @param random
+     * @return fraction of sites (or bonds) open when the grid first percolates
+     */
+    public double run(final TrialRandom random) {
+        return openToPercolate(random) / (double) elements();
+    }
+
+    /**
+     * run a single trial on the stream (seed, trial)
+     * @param seed
+     * @param trial
+     * @return exact number of open sites (or bonds) when it first percolates
+     */
+    public long openToPercolate(final long seed, final long trial) {
+        random.reseed(seed, trial);
+        return openToPercolate(random);
+    }
+
+    /**
+     * run a single trial, reusing the grid of the previous one
+     * @param random
+     * @return exact number of open sites (or bonds) when it first percolates
+     */
+    public long openToPercolate(final TrialRandom random) {
+        if (lattice != null) {
+            return runOnLattice(random);
+        }
+        if (percolation == null) {
+            percolation = backend.create(size);
+        } else {
+            percolation.reset();
+        }
+        if (sampling == Sampling.PERMUTATION) {
+            fillByPermutation(random);
+        } else {
+            fillByRejection(random);
+        }
+        return percolation.percolatedAt();
+    }
+
+    /**
+     * label the clusters of the grid or lattice as the last trial left it,
+     * that is at the moment it first percolated; the analysis is reused by
+     * later calls
+     * @return
+     */
+    public ClusterAnalysis clusters() {
+        if (lattice != null) {
+            if (system == null) {
+                throw new IllegalStateException("no trial has run");
+            }
+            if (analysis == null) {
+                analysis = new ClusterAnalysis(lattice);
+            }
+            analysis.analyze(system);
+            return analysis;
+        }
+        if (percolation == null) {
+            throw new IllegalStateException("no trial has run");
+        }
+        if (analysis == null) {
+            analysis = new ClusterAnalysis(size);
+        }
+        analysis.analyze(percolation);
+        return analysis;
+    }
+
+    /**
+     * random numbers drawn by all trials so far, two per rejection draw
+     * @return
+     */
+    public long draws() {
+        return draws;
+    }
+
+    private long runOnLattice(final TrialRandom random) {
+        if (system == null) {
+            system = new LatticePercolation(lattice, bonds);
+        } else {
+            system.reset();
+        }
+        final int elements = system.elements();
+        if (sampling == Sampling.PERMUTATION) {
+            if (permutation == null) {
+                permutation = new SitePermutation(elements);
+            } else {
+                permutation.reset();
+            }
+            while (!system.percolates()) {
+                draws++;
+                system.open(permutation.next(random));
+            }
+        } else {
+            while (!system.percolates()) {
+                int element;
+                do {
+                    element = random.uniform(elements);
+                    draws++;
+                } while (system.isOpen(element) || !system.isValid(element));
+                system.open(element);
+            }
+        }
+        return system.percolatedAt();
+    }
+
+    // open sites until openAndCheck reports the moment of percolation
+    private void fillByRejection(final TrialRandom random) {
+        int row, column = 0;
+        do {
+            do {
+                row = random.uniform(size) + 1;
+                column = random.uniform(size) + 1;
+                draws += 2;
+            } while (percolation.isOpen(row, column));
+        } while (!percolation.openAndCheck(row, column));
+    }
+
+    private void fillByPermutation(final TrialRandom random) {
+        if (permutation == null) {
+            permutation = new SitePermutation(size * size);
+        } else {
+            permutation.reset();
+        }
+        int site;
+        do {
+            site = permutation.next(random);
+            draws++;
+        } while (!percolation.openAndCheck(site / size + 1, site % size + 1));
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Weighted quick union with path halving over the sites 0 to n - 1, like
+ * {@link WeightedQuickUnionUF} but able to split every site apart again in
+ * place, so that a grid reused for many trials allocates nothing per trial.
+ *
+ * @author Qiangqiang Gu
+ */
+class ResettableUnionFind {
+    private final int[] parent;
+    private final int[] size;
+
+    ResettableUnionFind(final int n) {
+        parent = new int[n];
+        size = new int[n];
+        reset();
+    }
+
+    /**
+     * make every site its own component again
+     */
+    void reset() {
+        for (int site = 0; site < parent.length; site++) {
+            parent[site] = site;
+            size[site] = 1;
+        }
+    }
+
+    int find(final int site) {
+        int node = site;
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    boolean connected(final int p, final int q) {
+        return find(p) == find(q);
+    }
+
+    void union(final int p, final int q) {
+        final int rootP = find(p);
+        final int rootQ = find(q);
+        if (rootP == rootQ) {
+            return;
+        }
+        if (size[rootP] < size[rootQ]) {
+            parent[rootP] = rootQ;
+            size[rootQ] += size[rootP];
+        } else {
+            parent[rootQ] = rootP;
+            size[rootP] += size[rootQ];
+        }
+    }
+}
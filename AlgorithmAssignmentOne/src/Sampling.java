@@ -0,0 +1,11 @@
+/**
+ * How a trial chooses the next site to open.
+ *
+ * @author Qiangqiang Gu
+ */
+public enum Sampling {
+    /** draw random sites and retry the ones that are already open */
+    REJECTION,
+    /** walk a random permutation of the sites, every draw opens a new site */
+    PERMUTATION
+}
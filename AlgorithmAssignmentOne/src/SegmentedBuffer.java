@@ -0,0 +1,128 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A long-indexed byte store outside the Java heap, split into ByteBuffer
+ * segments since a single buffer is limited to 2GB. Segments are either
+ * direct buffers or regions of a memory mapped file; both start zeroed.
+ *
+ * @author Qiangqiang Gu
+ */
+public class SegmentedBuffer {
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    private static final int CLEAR_CHUNK = 1 << 16;
+    // only ever read, so one chunk serves every buffer
+    private static final byte[] ZEROS = new byte[CLEAR_CHUNK];
+    private final ByteBuffer[] segments;
+    private final long capacity;
+
+    /**
+     * allocate the given number of bytes as direct buffers
+     * @param capacity
+     */
+    public SegmentedBuffer(final long capacity) {
+        this.capacity = checkCapacity(capacity);
+        segments = new ByteBuffer[segmentCount(capacity)];
+        for (int i = 0; i < segments.length; i++) {
+            final ByteBuffer segment = ByteBuffer.allocateDirect(segmentLength(i));
+            segments[i] = segment.order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * map the given number of bytes of a file, discarding whatever the file
+     * held before
+     * @param capacity
+     * @param file
+     * @throws IOException
+     */
+    public SegmentedBuffer(final long capacity, final File file) throws IOException {
+        this.capacity = checkCapacity(capacity);
+        segments = new ByteBuffer[segmentCount(capacity)];
+        final RandomAccessFile data = new RandomAccessFile(file, "rw");
+        try {
+            // truncated first, so that the bytes of an earlier run read zero
+            data.setLength(0);
+            data.setLength(capacity);
+            final FileChannel channel = data.getChannel();
+            for (int i = 0; i < segments.length; i++) {
+                final long offset = (long) i << SEGMENT_SHIFT;
+                final ByteBuffer segment = channel.map(
+                    FileChannel.MapMode.READ_WRITE, offset, segmentLength(i));
+                segments[i] = segment.order(ByteOrder.nativeOrder());
+            }
+        } finally {
+            // the mappings stay valid once the file is closed
+            data.close();
+        }
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public byte getByte(final long index) {
+        return segments[segment(index)].get(offset(index));
+    }
+
+    public void putByte(final long index, final byte value) {
+        segments[segment(index)].put(offset(index), value);
+    }
+
+    /**
+     * read the int at a byte index that is a multiple of four, so it never
+     * straddles two segments
+     * @param index
+     * @return
+     */
+    public int getInt(final long index) {
+        return segments[segment(index)].getInt(offset(index));
+    }
+
+    public void putInt(final long index, final int value) {
+        segments[segment(index)].putInt(offset(index), value);
+    }
+
+    /**
+     * zero every byte, a bulk put per chunk of each segment
+     */
+    public void clear() {
+        for (final ByteBuffer segment : segments) {
+            segment.clear();
+            while (segment.remaining() > ZEROS.length) {
+                segment.put(ZEROS);
+            }
+            segment.put(ZEROS, 0, segment.remaining());
+            segment.clear();
+        }
+    }
+
+    private int segmentLength(final int segment) {
+        final long start = (long) segment << SEGMENT_SHIFT;
+        return (int) Math.min(capacity - start, 1L << SEGMENT_SHIFT);
+    }
+
+    private static long checkCapacity(final long capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity");
+        }
+        return capacity;
+    }
+
+    private static int segmentCount(final long capacity) {
+        return (int) ((capacity + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+    }
+
+    private static int segment(final long index) {
+        return (int) (index >>> SEGMENT_SHIFT);
+    }
+
+    private static int offset(final long index) {
+        return (int) (index & SEGMENT_MASK);
+    }
+}
@@ -0,0 +1,56 @@
+import java.util.NoSuchElementException;
+
+/**
+ * Hands out the sites of a grid in uniformly random order by running the
+ * Fisher-Yates shuffle one step per draw, so every draw is a new site.
+ *
+ * @author Qiangqiang Gu
+ */
+public class SitePermutation {
+    private final int[] sites;
+    private int remaining;
+
+    public SitePermutation(final int amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("amount");
+        }
+        sites = new int[amount];
+        reset();
+    }
+
+    /**
+     * put every site back, in index order so the draws only depend on the
+     * random stream and not on the previous permutation
+     */
+    public void reset() {
+        for (int i = 0; i < sites.length; i++) {
+            sites[i] = i;
+        }
+        remaining = sites.length;
+    }
+
+    public boolean isEmpty() {
+        return remaining == 0;
+    }
+
+    public int remaining() {
+        return remaining;
+    }
+
+    /**
+     * draw a site that has not been drawn since the last reset
+     * @param random
+     * @return zero based site index
+     */
+    public int next(final TrialRandom random) {
+        if (remaining == 0) {
+            throw new NoSuchElementException();
+        }
+        final int index = random.uniform(remaining);
+        remaining--;
+        final int site = sites[index];
+        sites[index] = sites[remaining];
+        sites[remaining] = site;
+        return site;
+    }
+}
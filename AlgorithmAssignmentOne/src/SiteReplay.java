@@ -0,0 +1,272 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a trace of sites to open, N followed by one row and column pair per
+ * site, and applies it to a percolation system in bulk. The trace is read
+ * through a channel in large blocks and parsed by hand instead of through
+ * {@link In}, and every block is validated once before its sites are opened.
+ * Execution: java SiteReplay trace [backend] [copy]
+ * With a copy file the trace is written there in binary instead of replayed.
+ *
+ * A trace is either the text format of the percolation input files, numbers
+ * separated by white space, or binary: the bytes "PERC", then N and the
+ * pairs as big endian ints. The format is recognised from the first bytes.
+ *
+ * @author Qiangqiang Gu
+ */
+public class SiteReplay implements Closeable {
+    // "PERC" as a big endian int
+    private static final int MAGIC = 0x50455243;
+    private static final int BUFFER = 1 << 16;
+    private static final int BLOCK = 1 << 14;
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER);
+    private final int[] block = new int[2 * BLOCK];
+    private final boolean binary;
+    private final int size;
+    private boolean eof;
+    private long steps;
+    // the text number being parsed when a block ends in its middle
+    private long value;
+    private boolean negative;
+    private boolean inNumber;
+
+    public SiteReplay(final File file) throws IOException {
+        this(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+    }
+
+    /**
+     * read the header of a trace; the channel is closed by {@link #close()}
+     * @param channel
+     * @throws IOException
+     */
+    public SiteReplay(final ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        buffer.flip();
+        binary = fill(4) && buffer.getInt(buffer.position()) == MAGIC;
+        if (binary) {
+            buffer.getInt();
+        }
+        if (read(block, 0, 1) < 1 || block[0] <= 0) {
+            throw new IllegalArgumentException("N");
+        }
+        size = block[0];
+    }
+
+    /**
+     * N of the N-by-N system the trace is for
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * number of sites read so far
+     * @return
+     */
+    public long steps() {
+        return steps;
+    }
+
+    /**
+     * read the next sites as row, column pairs, all of them checked to be
+     * within the grid; fewer than fit are only read at the end of the trace
+     * @param sites
+     * @return the number of sites read, 0 at the end of the trace
+     * @throws IOException
+     */
+    public int read(final int[] sites) throws IOException {
+        final int count = read(sites, 0, sites.length - sites.length % 2);
+        if (count % 2 != 0) {
+            throw new IllegalArgumentException("row without a column");
+        }
+        for (int k = 0; k < count; k++) {
+            if (sites[k] <= 0 || sites[k] > size) {
+                throw new IndexOutOfBoundsException("step " + (steps + k / 2 + 1));
+            }
+        }
+        steps += count / 2;
+        return count / 2;
+    }
+
+    /**
+     * open every remaining site of the trace
+     * @param system an N-by-N system
+     * @return the step, counted from 1 at the start of the trace, whose site
+     * made the system percolate, -1 if none did
+     * @throws IOException
+     */
+    public long replay(final PercolationSystem system) throws IOException {
+        long percolatedStep = -1;
+        int count = read(block);
+        while (count > 0) {
+            final long first = steps - count + 1;
+            for (int k = 0; k < count; k++) {
+                if (system.openAndCheck(block[2 * k], block[2 * k + 1])) {
+                    percolatedStep = first + k;
+                }
+            }
+            count = read(block);
+        }
+        return percolatedStep;
+    }
+
+    /**
+     * write the remaining sites of the trace to a file in the binary format
+     * @param target
+     * @throws IOException
+     */
+    public void copyTo(final File target) throws IOException {
+        final FileChannel out = FileChannel.open(target.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            final ByteBuffer bytes = ByteBuffer.allocateDirect(8 * BLOCK);
+            bytes.putInt(MAGIC).putInt(size);
+            write(out, bytes);
+            int count = read(block);
+            while (count > 0) {
+                bytes.asIntBuffer().put(block, 0, 2 * count);
+                bytes.position(8 * count);
+                write(out, bytes);
+                count = read(block);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        PercolationBackend backend = PercolationBackend.DUAL_UNION;
+        if (args.length > 1) {
+            backend = PercolationBackend.valueOf(args[1].toUpperCase());
+        }
+        final SiteReplay replay = new SiteReplay(new File(args[0]));
+        try {
+            if (args.length > 2) {
+                replay.copyTo(new File(args[2]));
+                StdOut.println(replay.steps() + " sites written");
+                return;
+            }
+            final PercolationSystem system = backend.create(replay.size());
+            final Stopwatch stopwatch = new Stopwatch();
+            final long step = replay.replay(system);
+            final double elapsed = stopwatch.elapsedTime();
+            StdOut.println("N               = " + replay.size());
+            StdOut.println("sites           = " + replay.steps());
+            StdOut.println("open sites      = " + system.openSites());
+            StdOut.println("percolates at   = " + step);
+            StdOut.println("seconds         = " + elapsed);
+        } finally {
+            replay.close();
+        }
+    }
+
+    private static void write(final FileChannel out, final ByteBuffer bytes)
+        throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    // read ints into values[from, to), fewer only at the end of the trace
+    private int read(final int[] values, final int from, final int to)
+        throws IOException {
+        if (binary) {
+            return readBinary(values, from, to);
+        }
+        return readText(values, from, to);
+    }
+
+    private int readBinary(final int[] values, final int from, final int to)
+        throws IOException {
+        int count = from;
+        while (count < to && fill(4)) {
+            final int n = Math.min(to - count, buffer.remaining() / 4);
+            buffer.asIntBuffer().get(values, count, n);
+            buffer.position(buffer.position() + 4 * n);
+            count += n;
+        }
+        if (count < to && buffer.hasRemaining()) {
+            throw new IllegalArgumentException("truncated trace");
+        }
+        return count - from;
+    }
+
+    private int readText(final int[] values, final int from, final int to)
+        throws IOException {
+        int count = from;
+        while (count < to) {
+            if (!buffer.hasRemaining() && !fill(1)) {
+                if (inNumber) {
+                    values[count++] = finishNumber();
+                }
+                break;
+            }
+            final byte b = buffer.get();
+            if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                if (value > Integer.MAX_VALUE) {
+                    throw new NumberFormatException("number too large");
+                }
+                inNumber = true;
+            } else if (b == '-' && !inNumber && !negative) {
+                negative = true;
+            } else if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                if (inNumber) {
+                    values[count++] = finishNumber();
+                } else if (negative) {
+                    throw new NumberFormatException("-");
+                }
+            } else {
+                throw new NumberFormatException("unexpected '" + (char) b + "'");
+            }
+        }
+        return count - from;
+    }
+
+    private int finishNumber() {
+        int number = (int) value;
+        if (negative) {
+            number = -number;
+        }
+        value = 0;
+        negative = false;
+        inNumber = false;
+        return number;
+    }
+
+    // make at least the given number of bytes available, unless the trace
+    // ends first
+    private boolean fill(final int needed) throws IOException {
+        if (buffer.remaining() >= needed) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < needed && !eof) {
+            if (channel.read(buffer) < 0) {
+                eof = true;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= needed;
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Decides when an open ended percolation run has done enough trials: once
+ * the 95% confidence half width drops below epsilon, the time budget runs
+ * out or the trial limit is reached. Override {@link #shouldStop} to watch
+ * the estimate converge or to stop on other criteria.
+ *
+ * @author Qiangqiang Gu
+ */
+public class StoppingRule {
+    private final double epsilon;
+    private final long budgetMillis;
+    private final int maxTrials;
+
+    /**
+     * @param epsilon target half width of the 95% confidence interval
+     * @param budgetMillis wall time budget, checked between batches
+     * @param maxTrials upper bound on the number of trials
+     */
+    public StoppingRule(final double epsilon, final long budgetMillis,
+                        final int maxTrials) {
+        if (!(epsilon > 0)) {
+            throw new IllegalArgumentException("epsilon");
+        }
+        if (budgetMillis <= 0) {
+            throw new IllegalArgumentException("budgetMillis");
+        }
+        if (maxTrials < 2) {
+            throw new IllegalArgumentException("maxTrials");
+        }
+        this.epsilon = epsilon;
+        this.budgetMillis = budgetMillis;
+        this.maxTrials = maxTrials;
+    }
+
+    public int maxTrials() {
+        return maxTrials;
+    }
+
+    /**
+     * called after every completed batch of trials
+     * @param estimate all thresholds so far
+     * @param elapsedMillis wall time since the run started
+     * @return true to end the run
+     */
+    public boolean shouldStop(final ThresholdEstimator estimate,
+                              final long elapsedMillis) {
+        if (estimate.count() >= maxTrials || elapsedMillis >= budgetMillis) {
+            return true;
+        }
+        return estimate.count() >= 2 && estimate.halfWidth() < epsilon;
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Running mean and variance of percolation thresholds (Welford's method).
+ * Estimators filled on different threads can be merged, see {@link #merge}.
+ *
+ * @author Qiangqiang Gu
+ */
+public class ThresholdEstimator {
+    // 95% two sided quantile of the standard normal distribution
+    private static final double CONFIDENCE_95 = 1.96;
+    private long count;
+    private double mean;
+    private double squares;
+
+    public void add(final double threshold) {
+        count++;
+        final double delta = threshold - mean;
+        mean += delta / count;
+        squares += delta * (threshold - mean);
+    }
+
+    /**
+     * fold another estimator into this one (Chan et al.), as if all of its
+     * samples had been added here
+     * @param that
+     */
+    public void merge(final ThresholdEstimator that) {
+        if (that.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = that.count;
+            mean = that.mean;
+            squares = that.squares;
+            return;
+        }
+        final long total = count + that.count;
+        final double delta = that.mean - mean;
+        mean += delta * that.count / total;
+        squares += that.squares + delta * delta * count * that.count / total;
+        count = total;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /**
+     * sample mean, NaN without samples
+     * @return
+     */
+    public double mean() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        return mean;
+    }
+
+    /**
+     * sample standard deviation, NaN with fewer than two samples
+     * @return
+     */
+    public double stddev() {
+        if (count < 2) {
+            return Double.NaN;
+        }
+        return Math.sqrt(squares / (count - 1));
+    }
+
+    /**
+     * half width of the 95% confidence interval
+     * @return
+     */
+    public double halfWidth() {
+        return CONFIDENCE_95 * stddev() / Math.sqrt(count);
+    }
+
+    public double confidenceLo() {
+        return mean() - halfWidth();
+    }
+
+    public double confidenceHi() {
+        return mean() + halfWidth();
+    }
+}
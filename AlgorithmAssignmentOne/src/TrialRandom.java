@@ -0,0 +1,63 @@
+/**
+ * A small SplitMix64 generator. Every trial gets its own stream derived from
+ * the run seed and the trial index, so a trial draws the same sites no matter
+ * which thread happens to run it.
+ *
+ * @author Qiangqiang Gu
+ */
+public class TrialRandom {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+    private long state;
+
+    public TrialRandom(final long seed, final long stream) {
+        reseed(seed, stream);
+    }
+
+    /**
+     * restart as if newly created with the given seed and stream
+     * @param seed
+     * @param stream
+     */
+    public void reseed(final long seed, final long stream) {
+        state = mix64(seed ^ mix64(stream + GOLDEN_GAMMA));
+    }
+
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix64(state);
+    }
+
+    /**
+     * uniformly random double in [0, 1)
+     * @return
+     */
+    public double uniform() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * uniformly random integer in [0, n), without modulo bias
+     * @param n
+     * @return
+     */
+    public int uniform(final int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n");
+        }
+        int bits;
+        int value;
+        do {
+            bits = (int) (nextLong() >>> 33);
+            value = bits % n;
+        } while (bits - value + (n - 1) < 0);
+        return value;
+    }
+
+    private static long mix64(final long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -23,7 +23,8 @@ public class InteractivePercolationVisualizer {
 
         StdDraw.show(0);
         Percolation perc = new Percolation(N);
-        PercolationVisualizer.draw(perc, N);
+        PercolationRenderer renderer = new PercolationRenderer(perc, N);
+        renderer.drawAll();
         StdDraw.show(0);
 
         while (true) {
@@ -44,12 +45,12 @@ public class InteractivePercolationVisualizer {
                     if (!perc.isOpen(i, j)) { 
                         StdOut.println(i + " " + j);
                     }
-                    perc.open(i, j);
+                    renderer.open(i, j);
                 }
 
-                // draw N-by-N percolation system
+                // repaint the sites that changed
                 StdDraw.show(0);
-                PercolationVisualizer.draw(perc, N);
+                renderer.flush();
             }
             StdDraw.show(20);
         }
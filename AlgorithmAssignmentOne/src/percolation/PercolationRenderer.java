@@ -0,0 +1,239 @@
+/****************************************************************************
+ *  Compilation:  javac PercolationRenderer.java
+ *  Execution:    java PercolationRenderer input.txt [opens-per-frame] [dir]
+ *  Dependencies: Percolation.java PercolationVisualizer.java SiteReplay.java
+ *
+ *  Draws a percolation system incrementally. Only the cells whose state
+ *  changed since the last frame are repainted: the site just opened and,
+ *  if it is full, the open sites that became full through it, found by a
+ *  flood fill from that site. Drawing a whole replay therefore costs time
+ *  proportional to the number of sites, not N^2 per opened site.
+ *
+ *  Frames go either to standard drawing or, given an output directory, to
+ *  a sequence of PNG files rendered offscreen, which needs no display. The
+ *  input may be a text or binary trace, see SiteReplay.
+ *
+ ****************************************************************************/
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+public class PercolationRenderer {
+
+    // what a cell looks like on the canvas
+    private static final byte BLOCKED = 0;
+    private static final byte OPEN = 1;
+    private static final byte FULL = 2;
+
+    // StdDraw.BOOK_LIGHT_BLUE, without loading StdDraw when headless
+    private static final Color LIGHT_BLUE = new Color(103, 198, 243);
+
+    // delay in miliseconds between frames on standard drawing
+    private static final int DELAY = 100;
+
+    // pixels per cell of offscreen frames, at most
+    private static final int MAX_CELL_PIXELS = 16;
+    private static final int MAX_IMAGE_PIXELS = 2048;
+
+    private final PercolationSystem perc;
+    private final int N;
+    private final byte[] drawn;
+    private final boolean[] queued;
+    private final int[] dirty;
+    private final int[] stack;
+    private int dirtyCount;
+    private int opened;
+
+    public PercolationRenderer(PercolationSystem perc, int N) {
+        this.perc = perc;
+        this.N = N;
+        this.drawn = new byte[N * N];
+        this.queued = new boolean[N * N];
+        this.dirty = new int[N * N];
+        this.stack = new int[N * N];
+        // pick up whatever is already open
+        for (int row = 1; row <= N; row++) {
+            for (int col = 1; col <= N; col++) {
+                if (perc.isOpen(row, col) && drawn[index(row, col)] == BLOCKED) {
+                    opened++;
+                    markOpened(row, col);
+                }
+            }
+        }
+    }
+
+    // open site (row i, column j) and remember which cells need repainting
+    public void open(int i, int j) {
+        if (perc.isOpen(i, j)) return;
+        perc.open(i, j);
+        opened++;
+        markOpened(i, j);
+    }
+
+    public int opened() {
+        return opened;
+    }
+
+    // draw the whole system to standard drawing, as PercolationVisualizer does
+    public void drawAll() {
+        PercolationVisualizer.draw(perc, N);
+        for (int k = 0; k < dirtyCount; k++) queued[dirty[k]] = false;
+        dirtyCount = 0;
+    }
+
+    // repaint the changed cells and the status line on standard drawing
+    public void flush() {
+        for (int k = 0; k < dirtyCount; k++) {
+            int site = dirty[k];
+            queued[site] = false;
+            StdDraw.setPenColor(color(drawn[site]));
+            StdDraw.filledSquare(site % N + 0.5, N - site / N - 0.5, 0.45);
+        }
+        dirtyCount = 0;
+        StdDraw.setPenColor(StdDraw.WHITE);
+        StdDraw.filledRectangle(N/2.0, -N*.025, .55*N, .025*N);
+        StdDraw.setFont(new Font("SansSerif", Font.PLAIN, 12));
+        StdDraw.setPenColor(StdDraw.BLACK);
+        StdDraw.text(.25*N, -N*.025, opened + " open sites");
+        if (perc.percolates()) StdDraw.text(.75*N, -N*.025, "percolates");
+        else                   StdDraw.text(.75*N, -N*.025, "does not percolate");
+    }
+
+    // create an offscreen image of the blocked system, sized for N
+    public BufferedImage createImage() {
+        int cell = cellPixels();
+        BufferedImage image =
+            new BufferedImage(N * cell, N * cell, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, N * cell, N * cell);
+        g.dispose();
+        for (int site = 0; site < drawn.length; site++) {
+            if (drawn[site] != BLOCKED) markDirty(site);
+        }
+        return image;
+    }
+
+    // repaint the changed cells into an image made by createImage()
+    public void flush(BufferedImage image) {
+        int cell = image.getWidth() / N;
+        int gap = 0;
+        if (cell >= 4) gap = 1;
+        Graphics2D g = image.createGraphics();
+        for (int k = 0; k < dirtyCount; k++) {
+            int site = dirty[k];
+            queued[site] = false;
+            g.setColor(color(drawn[site]));
+            g.fillRect(site % N * cell + gap, site / N * cell + gap,
+                       cell - 2 * gap, cell - 2 * gap);
+        }
+        g.dispose();
+        dirtyCount = 0;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int opensPerFrame = 1;
+        File directory = null;
+        if (args.length > 1) opensPerFrame = Integer.parseInt(args[1]);
+        if (args.length > 2) {
+            System.setProperty("java.awt.headless", "true");
+            directory = new File(args[2]);
+            if (!directory.isDirectory() && !directory.mkdirs())
+                throw new IOException("cannot create " + directory);
+        }
+
+        SiteReplay replay = new SiteReplay(new File(args[0]));
+        int N = replay.size();        // N-by-N percolation system
+        PercolationRenderer renderer =
+            new PercolationRenderer(new Percolation(N), N);
+
+        if (directory == null) {
+            StdDraw.show(0);
+            renderer.drawAll();
+            StdDraw.show(DELAY);
+        }
+        BufferedImage image = null;
+        if (directory != null) image = renderer.createImage();
+
+        // each frame opens one block of sites, read and checked in bulk
+        int[] sites = new int[2 * opensPerFrame];
+        int frame = 0;
+        for (int n = replay.read(sites); n > 0; n = replay.read(sites)) {
+            for (int k = 0; k < n; k++)
+                renderer.open(sites[2*k], sites[2*k + 1]);
+            if (directory == null) {
+                renderer.flush();
+                StdDraw.show(DELAY);
+            }
+            else {
+                renderer.flush(image);
+                String name = String.format("frame-%06d.png", frame);
+                ImageIO.write(image, "png", new File(directory, name));
+            }
+            frame++;
+        }
+        replay.close();
+    }
+
+    private void markOpened(int i, int j) {
+        int site = index(i, j);
+        if (!perc.isFull(i, j)) {
+            drawn[site] = OPEN;
+            markDirty(site);
+            return;
+        }
+        // everything open that is connected to a full site is full, and
+        // only the new site can have joined blocked regions together
+        int top = 0;
+        drawn[site] = FULL;
+        markDirty(site);
+        stack[top++] = site;
+        while (top > 0) {
+            int current = stack[--top];
+            int row = current / N + 1;
+            int col = current % N + 1;
+            if (col > 1)  top = fill(row, col - 1, top);
+            if (col < N)  top = fill(row, col + 1, top);
+            if (row > 1)  top = fill(row - 1, col, top);
+            if (row < N)  top = fill(row + 1, col, top);
+        }
+    }
+
+    private int fill(int row, int col, int top) {
+        int site = index(row, col);
+        if (drawn[site] == FULL || !perc.isOpen(row, col)) return top;
+        // a site drawn blocked that is open now was opened before this
+        // renderer saw it; it still only needs one repaint
+        if (drawn[site] == BLOCKED) opened++;
+        drawn[site] = FULL;
+        markDirty(site);
+        stack[top] = site;
+        return top + 1;
+    }
+
+    // a site is queued at most once per frame, however often it changes
+    private void markDirty(int site) {
+        if (queued[site]) return;
+        queued[site] = true;
+        dirty[dirtyCount++] = site;
+    }
+
+    private int cellPixels() {
+        return Math.max(1, Math.min(MAX_CELL_PIXELS, MAX_IMAGE_PIXELS / N));
+    }
+
+    private int index(int i, int j) {
+        return (i - 1) * N + j - 1;
+    }
+
+    private static Color color(byte state) {
+        if (state == FULL) return LIGHT_BLUE;
+        if (state == OPEN) return Color.WHITE;
+        return Color.BLACK;
+    }
+}
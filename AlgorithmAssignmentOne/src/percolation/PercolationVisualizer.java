@@ -1,7 +1,7 @@
 /****************************************************************************
  *  Compilation:  javac PercolationVisualizer.java
  *  Execution:    java PercolationVisualizer input.txt
- *  Dependencies: Percolation.java StdDraw.java In.java
+ *  Dependencies: Percolation.java StdDraw.java SiteReplay.java
  *
  *  This program takes the name of a file as a command-line argument.
  *  From that file, it
@@ -12,11 +12,15 @@
  *
  *  After each site is opened, it draws full sites in light blue,
  *  open sites (that aren't full) in white, and blocked sites in black,
- *  with with site (1, 1) in the upper left-hand corner.
+ *  with with site (1, 1) in the upper left-hand corner. Only the cells
+ *  that changed are repainted, see PercolationRenderer. The input may be
+ *  a text or binary trace, see SiteReplay.
  *
  ****************************************************************************/
 
 import java.awt.Font;
+import java.io.File;
+import java.io.IOException;
 
 public class PercolationVisualizer {
 
@@ -24,7 +28,7 @@ public class PercolationVisualizer {
     private static final int DELAY = 100;
 
     // draw N-by-N percolation system
-    public static void draw(Percolation perc, int N) {
+    public static void draw(PercolationSystem perc, int N) {
         StdDraw.clear();
         StdDraw.setPenColor(StdDraw.BLACK);
         StdDraw.setXscale(-.05*N, 1.05*N);
@@ -58,23 +62,24 @@ public class PercolationVisualizer {
 
     }
 
-    public static void main(String[] args) {
-        In in = new In(args[0]);      // input file
-        int N = in.readInt();         // N-by-N percolation system
+    public static void main(String[] args) throws IOException {
+        SiteReplay replay = new SiteReplay(new File(args[0]));
+        int N = replay.size();        // N-by-N percolation system
 
         // turn on animation mode
         StdDraw.show(0);
 
         // repeatedly read in sites to open and draw resulting system
-        Percolation perc = new Percolation(N);
-        draw(perc, N);
+        PercolationRenderer renderer =
+            new PercolationRenderer(new Percolation(N), N);
+        renderer.drawAll();
         StdDraw.show(DELAY);
-        while (!in.isEmpty()) {
-            int i = in.readInt();
-            int j = in.readInt();
-            perc.open(i, j);
-            draw(perc, N);
+        int[] site = new int[2];
+        while (replay.read(site) > 0) {
+            renderer.open(site[0], site[1]);
+            renderer.flush();
             StdDraw.show(DELAY);
         }
+        replay.close();
     }
 }
@@ -0,0 +1,131 @@
+/*************************************************************************
+ * Name:  Qiangqiang Gu
+ * Email: gqq@outlook.com
+ *
+ * Compilation:  javac Collinear.java
+ * Execution:    java Collinear input.txt [threads]
+ * Dependencies: Hashing.java ParallelHashing.java LineSegment.java
+ *               PointStore.java
+ *
+ * Description: The collinear points finder as a library. Given the
+ * coordinates of the points as int arrays, it finds every segment of 4
+ * or more collinear points with the search of Hashing and hands them out
+ * as LineSegment objects, through an iterator or a sink, in the order
+ * Fast prints them. Nothing is drawn or printed, so it runs headless.
+ *
+ *************************************************************************/
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+
+public class Collinear {
+
+    private final PointStore points;
+
+    // the points (xs[i], ys[i]); the arrays are not copied
+    public Collinear(final int[] xs, final int[] ys) {
+        this(new PointStore(xs, ys));
+    }
+
+    // the points of the store, which makes Point objects only for the
+    // segments found
+    public Collinear(final PointStore points) {
+        this.points = points;
+    }
+
+    // the segments, searched one axis at a time as the iterator advances
+    public Iterable<LineSegment> segments() {
+        return new Iterable<LineSegment>() {
+            @Override
+            public Iterator<LineSegment> iterator() {
+                return new Segments();
+            }
+        };
+    }
+
+    // all segments, searched on the pool
+    public List<LineSegment> segments(final ForkJoinPool pool) {
+        final int[][] found = new ParallelHashing(points).search(pool);
+        final List<LineSegment> segments = new ArrayList<LineSegment>(found.length);
+        for (final int[] segment : found) {
+            segments.add(segment(segment));
+        }
+        return segments;
+    }
+
+    // hand every segment to the sink, and return how many there were
+    public int findSegments(final SegmentSink sink) {
+        int count = 0;
+        for (final LineSegment segment : segments()) {
+            sink.segment(segment);
+            count++;
+        }
+        return count;
+    }
+
+    // print the segments of the points in the file, as Fast does
+    public static void main(String[] args) throws IOException {
+        final Collinear collinear =
+            new Collinear(PointStore.load(new File(args[0])));
+        Iterable<LineSegment> segments = collinear.segments();
+        if (args.length > 1) {
+            final ForkJoinPool pool = new ForkJoinPool(Integer.parseInt(args[1]));
+            try {
+                segments = collinear.segments(pool);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        for (final LineSegment segment : segments) {
+            StdOut.println(segment);
+        }
+    }
+
+    private LineSegment segment(final int[] indices) {
+        final Point[] segment = new Point[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            segment[i] = points.point(indices[i]);
+        }
+        Arrays.sort(segment);
+        return new LineSegment(segment);
+    }
+
+    /**
+     * Finds the segments of one axis after the other, when those of the
+     * previous axis are used up.
+     */
+    private class Segments implements Iterator<LineSegment> {
+        private final Hashing hashing = new Hashing(points);
+        private final List<int[]> found = new ArrayList<int[]>();
+        private int axis;
+        private int next;
+
+        @Override
+        public boolean hasNext() {
+            while (next == found.size() && axis < points.size()) {
+                found.clear();
+                next = 0;
+                hashing.findLinesegmentsFromPoint(axis++, found);
+            }
+            return next < found.size();
+        }
+
+        @Override
+        public LineSegment next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return segment(found.get(next++));
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*************************************************************************
+ * Name:  Qiangqiang Gu
+ * Email: gqq@outlook.com
+ *
+ * Compilation:  javac CollinearBenchmark.java
+ * Execution:    java CollinearBenchmark input.txt [threads] [rounds]
+ * Dependencies: Collinear.java
+ *
+ * Description: Times the search of Collinear, without drawing or
+ * printing, both through its iterator and on a fork join pool. The
+ * first round warms up the virtual machine and is not reported.
+ *
+ *************************************************************************/
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+public class CollinearBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int rounds = 3;
+        if (args.length > 1)
+            threads = Integer.parseInt(args[1]);
+        if (args.length > 2)
+            rounds = Integer.parseInt(args[2]);
+        final PointStore points = PointStore.load(new File(args[0]));
+        final Collinear collinear = new Collinear(points);
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        StdOut.printf("%-10s %10s %10s%n", "search", "segments", "seconds");
+        try {
+            for (int round = 0; round <= rounds; round++) {
+                Stopwatch stopwatch = new Stopwatch();
+                int count = 0;
+                for (final LineSegment segment : collinear.segments()) {
+                    count++;
+                }
+                report(round, "iterator", count, stopwatch.elapsedTime());
+                stopwatch = new Stopwatch();
+                count = collinear.segments(pool).size();
+                report(round, threads + " threads", count,
+                       stopwatch.elapsedTime());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void report(final int round, final String name,
+                               final int count, final double seconds) {
+        if (round > 0)
+            StdOut.printf("%-10s %10d %10.3f%n", name, count, seconds);
+    }
+}
@@ -4,69 +4,119 @@
  *
  * Compilation:  javac Fast.java
  * Execution:
- * Dependencies: StdDraw.java
+ * Dependencies: StdDraw.java PointStore.java
  *
  * Description: A quicker implementation of collinear points finder.
  *
  *************************************************************************/
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 
 public class Fast {
 
-    public static void main(String[] args) {
-        final String filename = args[0];
+    private static final int INSERTION_CUTOFF = 7;
+
+    // the slope from the axis to every point as an exact rise over run,
+    // filled once per axis and sorted as indices, without any division
+    private final PointStore points;
+    private final long[] rises;
+    private final long[] runs;
+    private final int[] order;
+    private final int[] aux;
+
+    private Fast(final PointStore points) {
+        this.points = points;
+        this.rises = new long[points.size()];
+        this.runs = new long[points.size()];
+        this.order = new int[points.size()];
+        this.aux = new int[points.size()];
+    }
+
+    public static void main(String[] args) throws IOException {
+        final PointStore points = PointStore.load(new File(args[0]));
         StdDraw.setXscale(0, 32768);
         StdDraw.setYscale(0, 32768);
-        final In in = new In(filename);
-        final int N = in.readInt();
-        final Point[] points = new Point[N];
-        for (int i = 0; i < N; i++) {
-            int x = in.readInt();
-            int y = in.readInt();
-            final Point p = new Point(x, y);
-            points[i] = p;
-            p.draw();
+        for (int i = 0; i < points.size(); i++) {
+            points.point(i).draw();
         }
-        for (int i = 0; i < points.length; i++) {
-            final Point[] others = copyExcept(points, i);
-            findLinesegmentsFromPoint(others, points[i]);
+        final Fast fast = new Fast(points);
+        for (int i = 0; i < points.size(); i++) {
+            fast.findLinesegmentsFromPoint(i);
         }
     }
-    
-    private static Point[] copyExcept(final Point[] items, int index) {
-        final Point[] result = new Point[items.length - 1];
-        if (index == 0) {
-            System.arraycopy(items, 1, result, 0, items.length - 1);
-        } else if (index == items.length - 1) {
-            System.arraycopy(items, 0, result, 0, items.length - 1);
-        } else {
-            System.arraycopy(items, 0, result, 0, index);
-            System.arraycopy(items, index + 1, result, index, items.length - index - 1);
-        }
-        return result;
-    }
 
-    private static void findLinesegmentsFromPoint(final Point[] points, final Point axis) {
-        Arrays.sort(points, axis.SLOPE_ORDER);
-        double slope = Double.NaN;
+    private void findLinesegmentsFromPoint(final int axisIndex) {
+        int n = 0;
+        for (int i = 0; i < points.size(); i++) {
+            if (i == axisIndex) {
+                continue;
+            }
+            rises[i] = points.rise(axisIndex, i);
+            runs[i] = points.run(axisIndex, i);
+            order[n++] = i;
+        }
+        sort(0, n);
         int startIndex = 0;
-        for (int i = 0; i < points.length; i++) {
-            final double currentSlope = axis.slopeTo(points[i]);
-            if (Double.isNaN(slope) || currentSlope != slope) {
+        for (int i = 1; i <= n; i++) {
+            if (i == n || compare(order[i - 1], order[i]) != 0) {
                 if (i - startIndex >= 3) {
-                    connectPoints(Arrays.copyOfRange(points, startIndex, i), axis);
+                    connectPoints(segment(startIndex, i), points.point(axisIndex));
                 }
                 startIndex = i;
-                slope = currentSlope;
             }
-            if (i == points.length - 1 && currentSlope == slope && i - startIndex >= 2) {
-                connectPoints(Arrays.copyOfRange(points, startIndex, i + 1), axis);
+        }
+    }
+
+    private int compare(final int i, final int j) {
+        return Point.compareSlopes(rises[i], runs[i], rises[j], runs[j]);
+    }
+
+    private Point[] segment(final int from, final int to) {
+        final Point[] result = new Point[to - from];
+        for (int i = from; i < to; i++) {
+            result[i - from] = points.point(order[i]);
+        }
+        return result;
+    }
+
+    // merge sort of order[lo, hi) by slope
+    private void sort(final int lo, final int hi) {
+        if (hi - lo <= INSERTION_CUTOFF) {
+            for (int i = lo + 1; i < hi; i++) {
+                final int item = order[i];
+                int j = i;
+                while (j > lo && compare(order[j - 1], item) > 0) {
+                    order[j] = order[j - 1];
+                    j--;
+                }
+                order[j] = item;
+            }
+            return;
+        }
+        final int mid = (lo + hi) >>> 1;
+        sort(lo, mid);
+        sort(mid, hi);
+        if (compare(order[mid - 1], order[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(order, lo, aux, lo, hi - lo);
+        int i = lo, j = mid;
+        for (int k = lo; k < hi; k++) {
+            if (i == mid) {
+                order[k] = aux[j++];
+            } else if (j == hi || compare(aux[i], aux[j]) <= 0) {
+                order[k] = aux[i++];
+            } else {
+                order[k] = aux[j++];
             }
         }
     }
 
-    private static void connectPoints(final Point[] points, final Point axis) {
+    // print and draw the segment of the axis and points if the axis is its
+    // smallest point, so that every segment is reported once
+    static void connectPoints(final Point[] points, final Point axis) {
         final Point[] allPoints = new Point[points.length + 1];
         System.arraycopy(points, 0, allPoints, 0, points.length);
         allPoints[points.length] = axis;
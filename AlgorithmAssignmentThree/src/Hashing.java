@@ -0,0 +1,233 @@
+/*************************************************************************
+ * Name:  Qiangqiang Gu
+ * Email: gqq@outlook.com
+ *
+ * Compilation:  javac Hashing.java
+ * Execution:    java Hashing input.txt
+ * Dependencies: StdDraw.java Fast.java PointStore.java
+ *
+ * Description: A collinear points finder in expected quadratic time. The
+ * points are grouped by their slope from each axis in a hash table of
+ * reduced slopes instead of being sorted, and the table and all other
+ * working arrays are reused for every axis. Prints the same segments in
+ * the same order as Fast.
+ *
+ *************************************************************************/
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class Hashing {
+
+    private static final int EMPTY = -1;
+
+    private final PointStore points;
+    // the hash table of slopes from the current axis, a slope being the
+    // rise and run of its reduced fraction; a slot is in use by the
+    // current axis if its stamp is the current generation, which grows with
+    // every axis searched, so that no slot is ever in use by a later search
+    // of the same axis
+    private final int mask;
+    private final long[] rises;
+    private final long[] runs;
+    private final int[] stamps;
+    private final int[] counts;
+    // the generation in which the slope leads to a point smaller than the
+    // axis, so that the axis is not where its segment starts
+    private final int[] smaller;
+    // where the points of a segment start in members, EMPTY if none
+    private final int[] starts;
+    private final int[] used;
+    private final int[] slotOf;
+    private final int[] segments;
+    private final int[] aux;
+    private final int[] members;
+    private int generation;
+
+    // the working arrays for a search of the points, to be used by one
+    // thread at a time
+    Hashing(final PointStore points) {
+        this.points = points;
+        int capacity = 2;
+        while (capacity < 2 * points.size()) {
+            capacity *= 2;
+        }
+        this.mask = capacity - 1;
+        this.rises = new long[capacity];
+        this.runs = new long[capacity];
+        this.stamps = new int[capacity];
+        this.counts = new int[capacity];
+        this.smaller = new int[capacity];
+        this.starts = new int[capacity];
+        this.used = new int[points.size()];
+        this.slotOf = new int[points.size()];
+        this.segments = new int[points.size()];
+        this.aux = new int[points.size()];
+        this.members = new int[points.size()];
+    }
+
+    public static void main(String[] args) throws IOException {
+        final PointStore points = PointStore.load(new File(args[0]));
+        StdDraw.setXscale(0, 32768);
+        StdDraw.setYscale(0, 32768);
+        for (int i = 0; i < points.size(); i++) {
+            points.point(i).draw();
+        }
+        final Hashing hashing = new Hashing(points);
+        final List<int[]> found = new ArrayList<int[]>();
+        for (int i = 0; i < points.size(); i++) {
+            found.clear();
+            hashing.findLinesegmentsFromPoint(i, found);
+            for (final int[] segment : found) {
+                connectPoints(points, segment);
+            }
+        }
+    }
+
+    // print and draw a segment found by findLinesegmentsFromPoint
+    static void connectPoints(final PointStore points, final int[] segment) {
+        final Point[] others = new Point[segment.length - 1];
+        for (int i = 1; i < segment.length; i++) {
+            others[i - 1] = points.point(segment[i]);
+        }
+        Fast.connectPoints(others, points.point(segment[0]));
+    }
+
+    // add the segments whose smallest point is the axis to found, in the
+    // order of their slopes; each is the indices of its points, the axis
+    // first and the largest point last
+    void findLinesegmentsFromPoint(final int axisIndex, final List<int[]> found) {
+        // stamps start at 0, so generations start at 1
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            Arrays.fill(smaller, 0);
+            generation = 0;
+        }
+        final int stamp = ++generation;
+        int usedCount = 0;
+        for (int i = 0; i < points.size(); i++) {
+            if (i == axisIndex) {
+                continue;
+            }
+            long rise = points.rise(axisIndex, i);
+            long run = points.run(axisIndex, i);
+            if (run < 0 || run == 0 && rise < 0) {
+                rise = -rise;
+                run = -run;
+            }
+            final long gcd = gcd(Math.abs(rise), run);
+            if (gcd > 1) {
+                rise /= gcd;
+                run /= gcd;
+            }
+            final int slot = slot(rise, run, stamp);
+            if (stamps[slot] != stamp) {
+                stamps[slot] = stamp;
+                rises[slot] = rise;
+                runs[slot] = run;
+                counts[slot] = 0;
+                used[usedCount++] = slot;
+            }
+            counts[slot]++;
+            if (points.compare(i, axisIndex) < 0) {
+                smaller[slot] = stamp;
+            }
+            slotOf[i] = slot;
+        }
+
+        // the segments starting at the axis, in the order of their slopes
+        int segmentCount = 0;
+        int memberCount = 0;
+        for (int k = 0; k < usedCount; k++) {
+            final int slot = used[k];
+            starts[slot] = EMPTY;
+            if (counts[slot] >= 3 && smaller[slot] != stamp) {
+                segments[segmentCount++] = slot;
+                starts[slot] = memberCount;
+                memberCount += counts[slot];
+            }
+        }
+        if (segmentCount == 0) {
+            return;
+        }
+        sort(0, segmentCount);
+
+        // bucket the points of those segments by slope, in one pass
+        for (int i = 0; i < points.size(); i++) {
+            if (i != axisIndex && starts[slotOf[i]] != EMPTY) {
+                members[starts[slotOf[i]]++] = i;
+            }
+        }
+        for (int k = 0; k < segmentCount; k++) {
+            final int slot = segments[k];
+            final int[] segment = new int[counts[slot] + 1];
+            segment[0] = axisIndex;
+            System.arraycopy(members, starts[slot] - counts[slot],
+                             segment, 1, counts[slot]);
+            int largest = 1;
+            for (int i = 2; i < segment.length; i++) {
+                if (points.compare(segment[i], segment[largest]) > 0) {
+                    largest = i;
+                }
+            }
+            final int swap = segment[largest];
+            segment[largest] = segment[segment.length - 1];
+            segment[segment.length - 1] = swap;
+            found.add(segment);
+        }
+    }
+
+    // the slot of a slope in the table, claimed if the current generation
+    // has not seen the slope yet
+    private int slot(final long rise, final long run, final int stamp) {
+        long hash = rise * 0x9E3779B97F4A7C15L + run;
+        hash ^= hash >>> 32;
+        hash *= 0xD6E8FEB86659FD93L;
+        hash ^= hash >>> 32;
+        int slot = (int) hash & mask;
+        while (stamps[slot] == stamp
+               && (rises[slot] != rise || runs[slot] != run)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // merge sort of segments[lo, hi) by slope
+    private void sort(final int lo, final int hi) {
+        if (hi - lo < 2) {
+            return;
+        }
+        final int mid = (lo + hi) >>> 1;
+        sort(lo, mid);
+        sort(mid, hi);
+        System.arraycopy(segments, lo, aux, lo, hi - lo);
+        int i = lo, j = mid;
+        for (int k = lo; k < hi; k++) {
+            if (i == mid) {
+                segments[k] = aux[j++];
+            } else if (j == hi || compare(aux[i], aux[j]) <= 0) {
+                segments[k] = aux[i++];
+            } else {
+                segments[k] = aux[j++];
+            }
+        }
+    }
+
+    private int compare(final int slot, final int other) {
+        return Point.compareSlopes(rises[slot], runs[slot],
+                                   rises[other], runs[other]);
+    }
+
+    private static long gcd(final long a, final long b) {
+        long p = a, q = b;
+        while (q != 0) {
+            final long r = p % q;
+            p = q;
+            q = r;
+        }
+        return p;
+    }
+}
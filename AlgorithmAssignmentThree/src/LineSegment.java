@@ -0,0 +1,59 @@
+/*************************************************************************
+ * Name:  Qiangqiang Gu
+ * Email: gqq@outlook.com
+ *
+ * Compilation:  javac LineSegment.java
+ * Execution:
+ * Dependencies: Point.java
+ *
+ * Description: An immutable segment of 4 or more collinear points, from
+ * its smallest point to its largest one.
+ *
+ *************************************************************************/
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
+public class LineSegment implements Iterable<Point> {
+
+    private final Point[] points;
+
+    // the segment of points, which are in increasing order and not copied
+    LineSegment(final Point[] points) {
+        this.points = points;
+    }
+
+    // the smallest point
+    public Point first() {
+        return points[0];
+    }
+
+    // the largest point
+    public Point last() {
+        return points[points.length - 1];
+    }
+
+    // number of points on the segment
+    public int size() {
+        return points.length;
+    }
+
+    // the points in increasing order
+    @Override
+    public Iterator<Point> iterator() {
+        return Collections.unmodifiableList(Arrays.asList(points)).iterator();
+    }
+
+    // the points in increasing order, as Fast prints them
+    @Override
+    public String toString() {
+        final StringBuilder s = new StringBuilder();
+        for (int i = 0; i < points.length; i++) {
+            if (i > 0)
+                s.append(" -> ");
+            s.append(points[i]);
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,141 @@
+/*************************************************************************
+ * Name:  Qiangqiang Gu
+ * Email: gqq@outlook.com
+ *
+ * Compilation:  javac ParallelHashing.java
+ * Execution:    java ParallelHashing input.txt [threads]
+ * Dependencies: StdDraw.java Hashing.java
+ *
+ * Description: The search of Hashing split over the cores. The axes are
+ * divided into ranges searched by a fork join pool, each running task
+ * with working arrays of its own, and the segments found go into a
+ * concurrent map keyed by their end points. Once the search is over they
+ * are printed and drawn in the order Fast prints them, whatever the split.
+ *
+ *************************************************************************/
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ParallelHashing {
+
+    // ranges of axes for each worker thread, for balance
+    private static final int TASKS_PER_THREAD = 8;
+
+    private final PointStore points;
+    // working arrays no running task is using, made as tasks need them
+    // and dropped when the search ends, so none stay with the threads of
+    // a pool that outlives the search
+    private final Queue<Hashing> idle = new ConcurrentLinkedQueue<Hashing>();
+    // the segments by their first and last point
+    private final ConcurrentMap<Long, int[]> found =
+        new ConcurrentHashMap<Long, int[]>();
+    private int grain;
+
+    // segments in the order Fast prints them: by axis, then by slope
+    private final Comparator<int[]> order = new Comparator<int[]>() {
+        @Override
+        public int compare(final int[] a, final int[] b) {
+            if (a[0] != b[0])
+                return Integer.compare(a[0], b[0]);
+            // the same axis: the slope of the segment is that to its end
+            return points.compareSlopes(a[0], a[a.length - 1],
+                                        b[b.length - 1]);
+        }
+    };
+
+    public ParallelHashing(final PointStore points) {
+        this.points = points;
+    }
+
+    // all segments of 4 or more points, each as the indices of its points
+    // with the smallest first and the largest last, in the order of Fast
+    public int[][] search(final ForkJoinPool pool) {
+        found.clear();
+        grain = Math.max(1, points.size()
+                            / (pool.getParallelism() * TASKS_PER_THREAD));
+        try {
+            pool.invoke(new Search(0, points.size()));
+        } finally {
+            idle.clear();
+        }
+        final int[][] segments = found.values().toArray(new int[0][]);
+        Arrays.sort(segments, order);
+        return segments;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length > 1)
+            threads = Integer.parseInt(args[1]);
+        final PointStore points = PointStore.load(new File(args[0]));
+        StdDraw.setXscale(0, 32768);
+        StdDraw.setYscale(0, 32768);
+        for (int i = 0; i < points.size(); i++) {
+            points.point(i).draw();
+        }
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        final ParallelHashing search = new ParallelHashing(points);
+        int[][] segments;
+        try {
+            segments = search.search(pool);
+            // a second search must find the same (java -ea)
+            assert Arrays.deepEquals(segments, search.search(pool));
+        } finally {
+            pool.shutdown();
+        }
+        for (final int[] segment : segments) {
+            Hashing.connectPoints(points, segment);
+        }
+    }
+
+    /**
+     * Searches the axes [lo, hi) and adds what it finds to the map.
+     */
+    private class Search extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int lo;
+        private final int hi;
+
+        private Search(final int lo, final int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= grain) {
+                Hashing hashing = idle.poll();
+                if (hashing == null)
+                    hashing = new Hashing(points);
+                final List<int[]> segments = new ArrayList<int[]>();
+                try {
+                    for (int axis = lo; axis < hi; axis++) {
+                        segments.clear();
+                        hashing.findLinesegmentsFromPoint(axis, segments);
+                        for (final int[] segment : segments) {
+                            final long key = (long) segment[0] << 32
+                                | segment[segment.length - 1] & 0xFFFFFFFFL;
+                            found.putIfAbsent(key, segment);
+                        }
+                    }
+                } finally {
+                    idle.offer(hashing);
+                }
+                return;
+            }
+            final int mid = (lo + hi) >>> 1;
+            invokeAll(new Search(lo, mid), new Search(mid, hi));
+        }
+    }
+}
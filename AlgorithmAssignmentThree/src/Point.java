@@ -18,10 +18,8 @@ public class Point implements Comparable<Point> {
     public final Comparator<Point> SLOPE_ORDER = new Comparator<Point>() {
         @Override
         public int compare(final Point thiz, final Point that) {
-            final double thisSlope = Point.this.slopeTo(thiz);
-            final double thatSlope = Point.this.slopeTo(that);
-            
-            return Double.compare(thisSlope, thatSlope);
+            return compareSlopes((long) thiz.y - y, (long) thiz.x - x,
+                                 (long) that.y - y, (long) that.x - x);
         }
     };
 
@@ -61,12 +59,50 @@ public class Point implements Comparable<Point> {
             return deltaY * 1.0 / deltaX;
     }
 
+    // compare the slope rise1 / run1 with the slope rise2 / run2 exactly,
+    // ordered as slopeTo() orders them: 0 / 0 is the smallest and a
+    // vertical slope the largest; a rise and run are the differences of two
+    // int coordinates, so the products below cannot overflow unsigned
+    public static int compareSlopes(final long rise1, final long run1,
+                                    final long rise2, final long run2) {
+        // turn both slopes to a run that is never negative
+        long a = rise1, b = run1, c = rise2, d = run2;
+        if (b < 0 || b == 0 && a < 0) {
+            a = -a;
+            b = -b;
+        }
+        if (d < 0 || d == 0 && c < 0) {
+            c = -c;
+            d = -d;
+        }
+        final boolean degenerate1 = a == 0 && b == 0;
+        final boolean degenerate2 = c == 0 && d == 0;
+        if (degenerate1 || degenerate2)
+            return Boolean.compare(degenerate2, degenerate1);
+        final int sign = Long.signum(a);
+        if (sign != Long.signum(c))
+            return Integer.compare(sign, Long.signum(c));
+        // same sign: compare |a| * d with |c| * b as unsigned longs
+        final long left = Math.abs(a) * d;
+        final long right = Math.abs(c) * b;
+        return sign * Long.compare(left ^ Long.MIN_VALUE, right ^ Long.MIN_VALUE);
+    }
+
+    int x() {
+        return x;
+    }
+
+    int y() {
+        return y;
+    }
+
     // is this point lexicographically smaller than that one?
     // comparing y-coordinates and breaking ties by x-coordinates
     public int compareTo(Point that) {
+        // not by subtraction, which overflows for distant points
         if (y == that.y)
-            return x - that.x;
-        return y - that.y;
+            return Integer.compare(x, that.x);
+        return Integer.compare(y, that.y);
     }
 
     // return string representation of this point
@@ -83,5 +119,11 @@ public class Point implements Comparable<Point> {
         assert p.SLOPE_ORDER.compare(q, r) == -1;
         assert p.slopeTo(q) == Double.NEGATIVE_INFINITY;
         assert p.slopeTo(r) == Double.POSITIVE_INFINITY;
+        // two slopes that differ by less than a double can tell apart
+        final Point o = new Point(0, 0);
+        final Point s = new Point(Integer.MAX_VALUE - 1, Integer.MAX_VALUE);
+        final Point t = new Point(Integer.MAX_VALUE - 2, Integer.MAX_VALUE - 1);
+        assert o.slopeTo(s) == o.slopeTo(t);
+        assert o.SLOPE_ORDER.compare(s, t) < 0;
     }
 }
\ No newline at end of file
@@ -0,0 +1,255 @@
+/*************************************************************************
+ * Name:  Qiangqiang Gu
+ * Email: gqq@outlook.com
+ *
+ * Compilation:  javac PointStore.java
+ * Execution:    java PointStore input.txt [copy]
+ * Dependencies: Point.java
+ *
+ * Description: Points kept as two int arrays, xs and ys, rather than as
+ * one Point object each. Points are compared by index, the way
+ * Point.compareTo and Point.compareSlopes compare them. A store is
+ * loaded from a memory mapped file whose bytes are parsed in place, so
+ * no object is made per point. The file is either in the text format of
+ * the input files, N followed by the coordinates, or binary: the bytes
+ * "PNTS", then N and the x, y pairs as big endian ints. Given a copy
+ * file, main writes the points there in binary.
+ *
+ *************************************************************************/
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+public class PointStore {
+
+    // "PNTS" as a big endian int
+    private static final int MAGIC = 0x504e5453;
+    // bytes mapped at a time, a whole number of binary points
+    private static final long WINDOW = 1L << 30;
+    private static final int BUFFER = 1 << 16;
+
+    private final int[] xs;
+    private final int[] ys;
+
+    // the points (xs[i], ys[i]); the arrays are not copied
+    public PointStore(final int[] xs, final int[] ys) {
+        if (xs.length != ys.length)
+            throw new IllegalArgumentException("xs and ys differ in length");
+        this.xs = xs;
+        this.ys = ys;
+    }
+
+    // the coordinates of the points
+    public static PointStore of(final Point[] points) {
+        final int[] x = new int[points.length];
+        final int[] y = new int[points.length];
+        for (int i = 0; i < points.length; i++) {
+            x[i] = points[i].x();
+            y[i] = points[i].y();
+        }
+        return new PointStore(x, y);
+    }
+
+    // read the points of a text or binary file
+    public static PointStore load(final File file) throws IOException {
+        final FileChannel channel =
+            FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            final long size = channel.size();
+            if (size >= 8) {
+                final MappedByteBuffer header =
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, 8);
+                if (header.getInt(0) == MAGIC)
+                    return loadBinary(channel, size, header.getInt(4));
+            }
+            final TextParser parser = new TextParser();
+            for (long start = 0; start < size; start += WINDOW) {
+                parser.parse(channel.map(FileChannel.MapMode.READ_ONLY, start,
+                                         Math.min(WINDOW, size - start)));
+            }
+            return parser.finish();
+        } finally {
+            channel.close();
+        }
+    }
+
+    // write the points to a file in the binary format
+    public void write(final File file) throws IOException {
+        final FileChannel out = FileChannel.open(file.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER);
+            bytes.putInt(MAGIC).putInt(xs.length);
+            for (int i = 0; i < xs.length; i++) {
+                if (bytes.remaining() < 8)
+                    write(out, bytes);
+                bytes.putInt(xs[i]).putInt(ys[i]);
+            }
+            write(out, bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    // number of points
+    public int size() {
+        return xs.length;
+    }
+
+    public int x(final int i) {
+        return xs[i];
+    }
+
+    public int y(final int i) {
+        return ys[i];
+    }
+
+    // point i as an object, made anew
+    public Point point(final int i) {
+        return new Point(xs[i], ys[i]);
+    }
+
+    // compare point i with point j as Point.compareTo does
+    public int compare(final int i, final int j) {
+        if (ys[i] == ys[j])
+            return Integer.compare(xs[i], xs[j]);
+        return Integer.compare(ys[i], ys[j]);
+    }
+
+    // compare the slopes from point axis to points i and j as
+    // Point.SLOPE_ORDER of the axis does
+    public int compareSlopes(final int axis, final int i, final int j) {
+        return Point.compareSlopes(rise(axis, i), run(axis, i),
+                                   rise(axis, j), run(axis, j));
+    }
+
+    // difference in y from point from to point to
+    public long rise(final int from, final int to) {
+        return (long) ys[to] - ys[from];
+    }
+
+    // difference in x from point from to point to
+    public long run(final int from, final int to) {
+        return (long) xs[to] - xs[from];
+    }
+
+    public static void main(String[] args) throws IOException {
+        final Stopwatch stopwatch = new Stopwatch();
+        final PointStore store = load(new File(args[0]));
+        StdOut.println("points          = " + store.size());
+        StdOut.println("seconds         = " + stopwatch.elapsedTime());
+        if (args.length > 1) {
+            store.write(new File(args[1]));
+            StdOut.println(store.size() + " points written");
+        }
+    }
+
+    private static PointStore loadBinary(final FileChannel channel,
+                                         final long size, final int n)
+        throws IOException {
+        if (n < 0 || size != 8 + 8L * n)
+            throw new IllegalArgumentException("N");
+        final int[] x = new int[n];
+        final int[] y = new int[n];
+        int i = 0;
+        for (long start = 8; start < size; start += WINDOW) {
+            final MappedByteBuffer buffer = channel.map(
+                FileChannel.MapMode.READ_ONLY, start,
+                Math.min(WINDOW, size - start));
+            for (int offset = 0; offset < buffer.limit(); offset += 8) {
+                x[i] = buffer.getInt(offset);
+                y[i] = buffer.getInt(offset + 4);
+                i++;
+            }
+        }
+        return new PointStore(x, y);
+    }
+
+    private static void write(final FileChannel out, final ByteBuffer bytes)
+        throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    /**
+     * Parses the text format in place, one mapped window after the other;
+     * a number cut in two by the end of a window is carried over.
+     */
+    private static class TextParser {
+        private int[] x;
+        private int[] y;
+        private long count;
+        private long value;
+        private boolean negative;
+        private boolean inNumber;
+
+        private void parse(final ByteBuffer buffer) {
+            while (buffer.hasRemaining()) {
+                final byte b = buffer.get();
+                if (b >= '0' && b <= '9') {
+                    value = value * 10 + (b - '0');
+                    if (value > Integer.MAX_VALUE + 1L)
+                        throw new NumberFormatException("number too large");
+                    inNumber = true;
+                } else if (b == '-' && !inNumber && !negative) {
+                    negative = true;
+                } else if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                    if (inNumber)
+                        add(finishNumber());
+                    else if (negative)
+                        throw new NumberFormatException("-");
+                } else {
+                    throw new NumberFormatException("unexpected '" + (char) b
+                                                    + "'");
+                }
+            }
+        }
+
+        private PointStore finish() {
+            if (inNumber)
+                add(finishNumber());
+            if (x == null)
+                throw new IllegalArgumentException("N");
+            if (count != 2L * x.length)
+                throw new IllegalArgumentException("fewer than N points");
+            return new PointStore(x, y);
+        }
+
+        private void add(final int number) {
+            if (x == null) {
+                if (number < 0)
+                    throw new IllegalArgumentException("N");
+                x = new int[number];
+                y = new int[number];
+                return;
+            }
+            if (count == 2L * x.length)
+                throw new IllegalArgumentException("more than N points");
+            if (count % 2 == 0)
+                x[(int) (count / 2)] = number;
+            else
+                y[(int) (count / 2)] = number;
+            count++;
+        }
+
+        private int finishNumber() {
+            if (!negative && value > Integer.MAX_VALUE)
+                throw new NumberFormatException("number too large");
+            long number = value;
+            if (negative)
+                number = -number;
+            value = 0;
+            negative = false;
+            inNumber = false;
+            return (int) number;
+        }
+    }
+}
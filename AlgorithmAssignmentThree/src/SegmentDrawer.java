@@ -0,0 +1,37 @@
+/*************************************************************************
+ * Name:  Qiangqiang Gu
+ * Email: gqq@outlook.com
+ *
+ * Compilation:  javac SegmentDrawer.java
+ * Execution:    java SegmentDrawer input.txt
+ * Dependencies: StdDraw.java Collinear.java
+ *
+ * Description: A sink that draws every segment from its smallest point to
+ * its largest on standard drawing. The search itself draws nothing, so
+ * only a caller that wants a picture needs a display.
+ *
+ *************************************************************************/
+
+import java.io.File;
+import java.io.IOException;
+
+public class SegmentDrawer implements SegmentSink {
+
+    @Override
+    public void segment(final LineSegment segment) {
+        segment.first().drawTo(segment.last());
+    }
+
+    // plot the points of the file and draw the segments through them
+    public static void main(String[] args) throws IOException {
+        final PointStore points = PointStore.load(new File(args[0]));
+        StdDraw.setXscale(0, 32768);
+        StdDraw.setYscale(0, 32768);
+        StdDraw.show(0);
+        for (int i = 0; i < points.size(); i++) {
+            points.point(i).draw();
+        }
+        new Collinear(points).findSegments(new SegmentDrawer());
+        StdDraw.show(0);
+    }
+}
@@ -0,0 +1,17 @@
+/*************************************************************************
+ * Name:  Qiangqiang Gu
+ * Email: gqq@outlook.com
+ *
+ * Compilation:  javac SegmentSink.java
+ * Execution:
+ * Dependencies: LineSegment.java
+ *
+ * Description: Receives the segments of a search, one at a time and in
+ * the order they are found.
+ *
+ *************************************************************************/
+
+public interface SegmentSink {
+
+    void segment(LineSegment segment);
+}
@@ -0,0 +1,155 @@
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of {@link ConcurrentRandomizedBag} against a
+ * {@link RandomizedQueue} guarded by synchronized, as a shared random work
+ * pool: every thread dequeues an item and enqueues it again, with the odd
+ * sample in between. Each thread first enqueues its share of the items
+ * itself, so that they start out spread over the stripes the threads use.
+ * Execution: java ConcurrentBagBenchmark items operations [max threads]
+ *
+ * @author Qiangqiang Gu
+ */
+public class ConcurrentBagBenchmark {
+
+    /**
+     * The operations under test.
+     */
+    private abstract static class Pool {
+        abstract void enqueue(Integer item);
+
+        abstract Integer dequeue();
+
+        abstract Integer sample();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final int items = Integer.parseInt(args[0]);
+        final int operations = Integer.parseInt(args[1]);
+        int maxThreads = 32;
+        if (args.length > 2) {
+            maxThreads = Integer.parseInt(args[2]);
+        }
+        StdOut.printf("%-14s %8s %10s %14s%n", "pool", "threads", "seconds",
+                      "ops/second");
+        // the first pass warms up the compiler, the second is reported
+        for (int pass = 0; pass < 2; pass++) {
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                run("synchronized", lockedQueue(), items, operations, threads,
+                    pass == 1);
+                run("striped", stripedBag(threads), items, operations, threads,
+                    pass == 1);
+            }
+        }
+    }
+
+    private static void run(String name, final Pool pool, final int items,
+                            final int operations, final int threads,
+                            boolean report) throws InterruptedException {
+        final AtomicLong checksum = new AtomicLong();
+        final CountDownLatch filled = new CountDownLatch(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] workers = new Thread[threads];
+        for (int k = 0; k < threads; k++) {
+            final int first = k;
+            workers[k] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = first; i < items; i += threads) {
+                        pool.enqueue(i);
+                    }
+                    filled.countDown();
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    long sum = 0;
+                    for (int i = 0; i < operations; i++) {
+                        final Integer item = pool.dequeue();
+                        sum += item;
+                        if (i % 8 == 0) {
+                            sum += pool.sample();
+                        }
+                        pool.enqueue(item);
+                    }
+                    checksum.addAndGet(sum);
+                }
+            });
+        }
+        for (final Thread worker : workers) {
+            worker.start();
+        }
+        filled.await();
+        final Stopwatch stopwatch = new Stopwatch();
+        start.countDown();
+        for (final Thread worker : workers) {
+            worker.join();
+        }
+        final double elapsed = stopwatch.elapsedTime();
+        if (report) {
+            final double total = 2.0 * operations * threads;
+            StdOut.printf("%-14s %8d %10.3f %14.0f   (%d)%n", name, threads,
+                          elapsed, total / elapsed, checksum.get() % 10);
+        }
+    }
+
+    private static Pool lockedQueue() {
+        final RandomizedQueue<Integer> queue = new RandomizedQueue<Integer>();
+        return new Pool() {
+            @Override
+            void enqueue(Integer item) {
+                synchronized (queue) {
+                    queue.enqueue(item);
+                }
+            }
+
+            @Override
+            Integer dequeue() {
+                synchronized (queue) {
+                    return queue.dequeue();
+                }
+            }
+
+            @Override
+            Integer sample() {
+                synchronized (queue) {
+                    return queue.sample();
+                }
+            }
+        };
+    }
+
+    private static Pool stripedBag(int threads) {
+        final ConcurrentRandomizedBag<Integer> bag =
+            new ConcurrentRandomizedBag<Integer>(2 * threads);
+        return new Pool() {
+            @Override
+            void enqueue(Integer item) {
+                bag.enqueue(item);
+            }
+
+            @Override
+            Integer dequeue() {
+                // another thread may hold every item for a moment
+                Integer item = bag.poll();
+                while (item == null) {
+                    item = bag.poll();
+                }
+                return item;
+            }
+
+            @Override
+            Integer sample() {
+                try {
+                    return bag.sample();
+                } catch (NoSuchElementException e) {
+                    return 0;
+                }
+            }
+        };
+    }
+}
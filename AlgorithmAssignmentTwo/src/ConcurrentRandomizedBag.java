@@ -0,0 +1,175 @@
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A randomized bag that many threads can use at once. The items are spread
+ * over stripes, each a dense array like {@link RandomizedQueue}'s with its
+ * own lock: a thread enqueues into and dequeues from its home stripe, picked by
+ * its id, and only when that one is empty looks at the others, starting from
+ * a random one. Random numbers come from {@link ThreadLocalRandom}, so the
+ * threads share nothing on the fast path.
+ *
+ * An item is uniformly random within the stripe it came from, not within
+ * the whole bag; with items spread evenly the difference is small.
+ *
+ * @author Qiangqiang Gu
+ */
+public class ConcurrentRandomizedBag<Item> {
+    private static final int MIN_CAPACITY = 8;
+    private final Stripe<Item>[] stripes;
+
+    /**
+     * A dense array of items guarded by its own monitor.
+     */
+    private static final class Stripe<Item> {
+        private Item[] items = (Item[]) new Object[MIN_CAPACITY];
+        private volatile int count = 0;
+
+        private synchronized void add(final Item item) {
+            if (count == items.length) {
+                resizeTo(items.length * 2);
+            }
+            items[count] = item;
+            count++;
+        }
+
+        private synchronized Item poll(final ThreadLocalRandom random) {
+            if (count == 0) {
+                return null;
+            }
+            final int index = random.nextInt(count);
+            final Item item = items[index];
+            final int last = count - 1;
+            items[index] = items[last];
+            items[last] = null;
+            count = last;
+            if (items.length > MIN_CAPACITY && last < items.length / 4) {
+                resizeTo(items.length / 2);
+            }
+            return item;
+        }
+
+        private synchronized Item peek(final ThreadLocalRandom random) {
+            if (count == 0) {
+                return null;
+            }
+            return items[random.nextInt(count)];
+        }
+
+        private void resizeTo(final int capacity) {
+            final Item[] newItems = (Item[]) new Object[capacity];
+            System.arraycopy(items, 0, newItems, 0, count);
+            items = newItems;
+        }
+    }
+
+    public ConcurrentRandomizedBag() {
+        this(2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param concurrency about how many threads use the bag at once
+     */
+    public ConcurrentRandomizedBag(final int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency");
+        }
+        int count = 1;
+        while (count < concurrency) {
+            count *= 2;
+        }
+        // a generic array has to start out as one of the raw type
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final Stripe<Item>[] array = (Stripe<Item>[]) new Stripe[count];
+        stripes = array;
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe<Item>();
+        }
+    }
+
+    /**
+     * number of items, which may be stale by the time it is returned
+     * @return
+     */
+    public int size() {
+        int size = 0;
+        for (final Stripe<Item> stripe : stripes) {
+            size += stripe.count;
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void enqueue(final Item item) {
+        if (item == null) {
+            throw new NullPointerException();
+        }
+        stripes[home()].add(item);
+    }
+
+    /**
+     * remove and return a random item
+     * @return
+     */
+    public Item dequeue() {
+        final Item item = poll();
+        if (item == null) {
+            throw new NoSuchElementException();
+        }
+        return item;
+    }
+
+    /**
+     * remove and return a random item
+     * @return null if every stripe was empty when it was looked at
+     */
+    public Item poll() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final Item item = stripes[home()].poll(random);
+        if (item != null) {
+            return item;
+        }
+        // steal from the other stripes, starting from a random one
+        final int start = random.nextInt(stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            final Stripe<Item> stripe = stripes[(start + i) & (stripes.length - 1)];
+            if (stripe.count > 0) {
+                final Item stolen = stripe.poll(random);
+                if (stolen != null) {
+                    return stolen;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * return a random item without removing it
+     * @return
+     */
+    public Item sample() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final Item item = stripes[home()].peek(random);
+        if (item != null) {
+            return item;
+        }
+        final int start = random.nextInt(stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            final Stripe<Item> stripe = stripes[(start + i) & (stripes.length - 1)];
+            if (stripe.count > 0) {
+                final Item sampled = stripe.peek(random);
+                if (sampled != null) {
+                    return sampled;
+                }
+            }
+        }
+        throw new NoSuchElementException();
+    }
+
+    private int home() {
+        return (int) Thread.currentThread().getId() & (stripes.length - 1);
+    }
+}
@@ -73,6 +73,8 @@ public class Deque<Item> implements Iterable<Item> {
         first = next;
         if (next == null) {
             last = null;
+        } else {
+            next.previous = null;
         }
         count--;
         return item;
@@ -89,6 +91,8 @@ public class Deque<Item> implements Iterable<Item> {
         last = previous;
         if (previous == null) {
             first = null;
+        } else {
+            previous.next = null;
         }
         count--;
         return item;
@@ -0,0 +1,134 @@
+/**
+ * Compares the linked {@link Deque} with the array backed {@link RingDeque}
+ * and {@link IntDeque} on queue, stack and mixed workloads.
+ * Execution: java DequeBenchmark n rounds
+ *
+ * @author Qiangqiang Gu
+ */
+public class DequeBenchmark {
+    private static final String[] WORKLOADS = {"queue", "stack", "mixed"};
+
+    public static void main(String[] args) {
+        final int n = Integer.parseInt(args[0]);
+        final int rounds = Integer.parseInt(args[1]);
+        StdOut.printf("%-10s %-8s %10s %14s%n", "deque", "workload", "seconds",
+                      "ops/second");
+        // the first pass warms up the compiler, the second is reported
+        for (int pass = 0; pass < 2; pass++) {
+            final boolean report = pass == 1;
+            for (int workload = 0; workload < 3; workload++) {
+                time("Deque", workload, report, n, rounds,
+                     linked(workload, n, rounds));
+                time("RingDeque", workload, report, n, rounds,
+                     ring(workload, n, rounds));
+                time("IntDeque", workload, report, n, rounds,
+                     primitive(workload, n, rounds));
+            }
+        }
+    }
+
+    private static void time(String name, int workload, boolean report, int n,
+                             int rounds, Runnable run) {
+        final Stopwatch stopwatch = new Stopwatch();
+        run.run();
+        final double elapsed = stopwatch.elapsedTime();
+        if (report) {
+            final double operations = 2.0 * n * rounds;
+            StdOut.printf("%-10s %-8s %10.3f %14.0f%n", name, WORKLOADS[workload],
+                          elapsed, operations / elapsed);
+        }
+    }
+
+    // fill with n items, then empty again: queue adds last and removes
+    // first, stack adds and removes first, mixed alternates both ends
+    private static Runnable linked(final int workload, final int n,
+                                   final int rounds) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                final Deque<Integer> deque = new Deque<Integer>();
+                long sum = 0;
+                for (int round = 0; round < rounds; round++) {
+                    for (int i = 0; i < n; i++) {
+                        if (workload == 1 || (workload == 2 && i % 2 == 0)) {
+                            deque.addFirst(i);
+                        } else {
+                            deque.addLast(i);
+                        }
+                    }
+                    for (int i = 0; i < n; i++) {
+                        if (workload != 2 || i % 2 == 0) {
+                            sum += deque.removeFirst();
+                        } else {
+                            sum += deque.removeLast();
+                        }
+                    }
+                }
+                check(sum, n, rounds);
+            }
+        };
+    }
+
+    private static Runnable ring(final int workload, final int n,
+                                 final int rounds) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                final RingDeque<Integer> deque = new RingDeque<Integer>();
+                long sum = 0;
+                for (int round = 0; round < rounds; round++) {
+                    for (int i = 0; i < n; i++) {
+                        if (workload == 1 || (workload == 2 && i % 2 == 0)) {
+                            deque.addFirst(i);
+                        } else {
+                            deque.addLast(i);
+                        }
+                    }
+                    for (int i = 0; i < n; i++) {
+                        if (workload != 2 || i % 2 == 0) {
+                            sum += deque.removeFirst();
+                        } else {
+                            sum += deque.removeLast();
+                        }
+                    }
+                }
+                check(sum, n, rounds);
+            }
+        };
+    }
+
+    private static Runnable primitive(final int workload, final int n,
+                                      final int rounds) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                final IntDeque deque = new IntDeque();
+                long sum = 0;
+                for (int round = 0; round < rounds; round++) {
+                    for (int i = 0; i < n; i++) {
+                        if (workload == 1 || (workload == 2 && i % 2 == 0)) {
+                            deque.addFirst(i);
+                        } else {
+                            deque.addLast(i);
+                        }
+                    }
+                    for (int i = 0; i < n; i++) {
+                        if (workload != 2 || i % 2 == 0) {
+                            sum += deque.removeFirst();
+                        } else {
+                            sum += deque.removeLast();
+                        }
+                    }
+                }
+                check(sum, n, rounds);
+            }
+        };
+    }
+
+    // every item added is removed once, whatever the order
+    private static void check(long sum, int n, int rounds) {
+        if (sum != (long) n * (n - 1) / 2 * rounds) {
+            throw new IllegalStateException("lost items");
+        }
+    }
+}
@@ -0,0 +1,139 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link RingDeque} of long values, kept in a long[] so that they are never
+ * boxed. Iterating with {@link #get(int)} avoids boxing too; the iterator
+ * boxes every value it returns.
+ *
+ * @author Qiangqiang Gu
+ */
+public class LongDeque implements Iterable<Long> {
+    private static final int MIN_CAPACITY = 8;
+    private long[] items;
+    private int head = 0;
+    private int count = 0;
+
+    public LongDeque() {
+        items = new long[MIN_CAPACITY];
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public void addFirst(long item) {
+        if (count == items.length) {
+            resizeTo(items.length * 2);
+        }
+        head = (head - 1) & (items.length - 1);
+        items[head] = item;
+        count++;
+    }
+
+    public void addLast(long item) {
+        if (count == items.length) {
+            resizeTo(items.length * 2);
+        }
+        items[(head + count) & (items.length - 1)] = item;
+        count++;
+    }
+
+    public long removeFirst() {
+        if (count == 0) {
+            throw new NoSuchElementException();
+        }
+        final long item = items[head];
+        head = (head + 1) & (items.length - 1);
+        count--;
+        shrink();
+        return item;
+    }
+
+    public long removeLast() {
+        if (count == 0) {
+            throw new NoSuchElementException();
+        }
+        final int index = (head + count - 1) & (items.length - 1);
+        final long item = items[index];
+        count--;
+        shrink();
+        return item;
+    }
+
+    /**
+     * the item at the given position, 0 being the first
+     * @param index
+     * @return
+     */
+    public long get(final int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index");
+        }
+        return items[(head + index) & (items.length - 1)];
+    }
+
+    public Iterator<Long> iterator() {
+        return new Iterator<Long>() {
+            private int current = 0;
+
+            @Override
+            public boolean hasNext() {
+                return current < count;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("remove");
+            }
+
+            @Override
+            public Long next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return items[(head + current++) & (items.length - 1)];
+            }
+        };
+    }
+
+    private void shrink() {
+        if (items.length > MIN_CAPACITY && count < items.length / 4) {
+            resizeTo(items.length / 2);
+        }
+    }
+
+    // copy the items in order to the start of a new array
+    private void resizeTo(final int capacity) {
+        final long[] newItems = new long[capacity];
+        for (int i = 0; i < count; i++) {
+            newItems[i] = items[(head + i) & (items.length - 1)];
+        }
+        items = newItems;
+        head = 0;
+    }
+
+    public static void main(String[] args) {
+        final LongDeque queue = new LongDeque();
+        assert queue.isEmpty();
+        queue.addFirst(1);
+        assert !queue.isEmpty();
+        final long pop = queue.removeLast();
+        assert 1 == pop;
+        assert queue.isEmpty();
+        queue.addLast(1);
+        queue.addFirst(2);
+        queue.addLast(3);
+        final long last = queue.removeLast();
+        assert 3 == last;
+        for (int i = 0; i < 100; i++) {
+            queue.addFirst(i);
+        }
+        assert queue.size() == 102;
+        assert queue.get(0) == 99;
+        assert queue.get(101) == 1;
+    }
+}
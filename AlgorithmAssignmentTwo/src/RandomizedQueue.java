@@ -1,4 +1,5 @@
 
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -9,41 +10,37 @@ import java.util.NoSuchElementException;
 public class RandomizedQueue<Item> implements Iterable<Item> {
     private final ArrayList<Item> list = new ArrayList<Item>();
 
+    // the items are kept packed in items[0, count), so any index below
+    // count is a uniformly random item
     private class ArrayList<T> {
         private int count = 0;
-        private int head = 0;
+        private int modifications = 0;
         private T[] items = null;
 
         private ArrayList() {
             items = (T[]) new Object[1];
         }
 
-        private ArrayList(final ArrayList<T> another) {
-            items = copyTo(another.items, (T[])new Object[another.size()]);
-            head = items.length;
-            count = items.length;
-        }
-
         private int size() {
             return count;
         }
 
         private void add(final T item) {
-            if (head >= items.length) {
+            if (count >= items.length) {
                 resizeTo(items.length * 2);
             }
-            items[head] = item;
-            head++;
+            items[count] = item;
             count++;
+            modifications++;
         }
 
+        // the last item moves into the hole, so removing takes constant time
         private T remove(final int index) {
             final T value = get(index);
-            if (value == null) {
-                throw new UnsupportedOperationException();
-            }
-            items[index] = null;
             count--;
+            items[index] = items[count];
+            items[count] = null;
+            modifications++;
             if (count < items.length / 4) {
                 resizeTo(items.length / 2);
             }
@@ -56,19 +53,8 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
 
         private void resizeTo(final int newSize) {
             final T[] newItems = (T[]) new Object[newSize];
-            items = copyTo(items, newItems);
-            head = count;
-        }
-
-        private T[] copyTo(final T[] existingItems, final T[] newItems) {
-            int j = 0;
-            for (int i = 0; i < existingItems.length; i++) {
-                final T value = existingItems[i];
-                if (value != null) {
-                    newItems[j++] = value;
-                }
-            }
-            return newItems;
+            System.arraycopy(items, 0, newItems, 0, count);
+            items = newItems;
         }
     }
 
@@ -98,14 +84,16 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         return list.get(sampleIndex(list));
     }
 
+    // the random order is drawn as the iteration goes instead of shuffling
+    // a copy up front, so reading k items costs O(k); the queue must not
+    // change while it is iterated
     public Iterator<Item> iterator() {
-        final ArrayList<Item> iteration = new ArrayList<Item>(list);
-        StdRandom.shuffle(iteration.items);
+        final SparsePermutation order = new SparsePermutation(list.count);
+        final int expected = list.modifications;
         return new Iterator<Item>() {
-            private int pointer = list.count - 1;
             @Override
             public boolean hasNext() {
-                return pointer >= 0;
+                return order.hasNext();
             }
 
             @Override
@@ -117,7 +105,9 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
             public Item next() {
                 if (!hasNext())
                     throw new NoSuchElementException();
-                return iteration.remove(pointer--);
+                if (list.modifications != expected)
+                    throw new ConcurrentModificationException();
+                return list.get(order.next());
             }
         };
     }
@@ -126,14 +116,7 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         if (data.count == 0) {
             throw new NoSuchElementException();
         }
-        int index = StdRandom.uniform(data.count);
-        while (data.get(index) == null) {
-            index++;
-            if (index >= data.items.length) {
-                index = 0;
-            }
-        }
-        return index;
+        return StdRandom.uniform(data.count);
     }
 
     public static void main(final String[] args) {
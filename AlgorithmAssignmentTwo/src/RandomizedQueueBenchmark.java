@@ -0,0 +1,71 @@
+import java.util.Arrays;
+
+/**
+ * Latency of {@link RandomizedQueue} under interleaved enqueues and
+ * dequeues. Operations are timed in blocks; the spread between the median
+ * and the slowest blocks shows whether the cost of an operation depends on
+ * what happened to the queue before.
+ * Execution: java RandomizedQueueBenchmark n blocks
+ *
+ * @author Qiangqiang Gu
+ */
+public class RandomizedQueueBenchmark {
+    private static final int BLOCK = 1024;
+    private static final String[] WORKLOADS = {"steady", "sawtooth", "sample"};
+
+    public static void main(String[] args) {
+        final int n = Integer.parseInt(args[0]);
+        final int blocks = Integer.parseInt(args[1]);
+        StdOut.printf("%-9s %10s %10s %10s %10s%n", "workload", "mean ns",
+                      "p50 ns", "p99 ns", "max ns");
+        // the first pass warms up the compiler, the second is reported
+        for (int pass = 0; pass < 2; pass++) {
+            for (int workload = 0; workload < WORKLOADS.length; workload++) {
+                run(workload, n, blocks, pass == 1);
+            }
+        }
+    }
+
+    // steady keeps n items, enqueueing one for every one dequeued; sawtooth
+    // dequeues half of the items and enqueues them again; sample alternates
+    // dequeue, sample and enqueue
+    private static void run(int workload, int n, int blocks, boolean report) {
+        final RandomizedQueue<Integer> queue = new RandomizedQueue<Integer>();
+        final Integer[] values = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = i;
+            queue.enqueue(values[i]);
+        }
+        final double[] nanos = new double[blocks];
+        long checksum = 0;
+        int step = 0;
+        for (int block = 0; block < blocks; block++) {
+            final long start = System.nanoTime();
+            for (int k = 0; k < BLOCK; k++, step++) {
+                if (workload == 1) {
+                    if (step % n < n / 2) {
+                        checksum += queue.dequeue();
+                    } else {
+                        queue.enqueue(values[step % n]);
+                    }
+                } else if (step % 2 == 0) {
+                    checksum += queue.dequeue();
+                    if (workload == 2) {
+                        checksum += queue.sample();
+                    }
+                } else {
+                    queue.enqueue(values[step % n]);
+                }
+            }
+            nanos[block] = (System.nanoTime() - start) / (double) BLOCK;
+        }
+        if (report) {
+            final double mean = StdStats.mean(nanos);
+            Arrays.sort(nanos);
+            StdOut.printf("%-9s %10.1f %10.1f %10.1f %10.1f   (%d)%n",
+                          WORKLOADS[workload], mean, nanos[blocks / 2],
+                          nanos[(int) (blocks * 0.99)], nanos[blocks - 1],
+                          checksum % 10);
+        }
+    }
+}
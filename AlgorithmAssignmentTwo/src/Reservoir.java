@@ -0,0 +1,183 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A uniform random sample of at most k items of a stream of unknown length,
+ * kept in O(k) memory (Li's algorithm L). Instead of drawing a random number
+ * for every item, it computes how many of the coming items it will reject,
+ * see {@link #gap()}, so a reader can skip those without even parsing them.
+ *
+ * Samples of different parts of a stream can be merged into a sample of the
+ * whole, each part weighted by how many items it had, see {@link #merge}.
+ *
+ * @author Qiangqiang Gu
+ */
+public class Reservoir<Item> {
+    private final int capacity;
+    private final Item[] items;
+    private final Random random;
+    private long seen = 0;
+    // index of the next item that will be kept, once the reservoir is full
+    private long next = 0;
+    private double w;
+    // a merged sample cannot go on, since its w is unknown
+    private boolean merged = false;
+
+    public Reservoir(final int k) {
+        this(k, new Random());
+    }
+
+    public Reservoir(final int k, final Random random) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k");
+        }
+        if (random == null) {
+            throw new NullPointerException("random");
+        }
+        capacity = k;
+        items = (Item[]) new Object[k];
+        this.random = random;
+    }
+
+    /**
+     * number of items of the stream so far, kept or not
+     * @return
+     */
+    public long seen() {
+        return seen;
+    }
+
+    public int size() {
+        return (int) Math.min(seen, capacity);
+    }
+
+    /**
+     * the sample, in no particular order
+     * @return
+     */
+    public List<Item> items() {
+        return Collections.unmodifiableList(Arrays.asList(
+            Arrays.copyOf(items, size())));
+    }
+
+    /**
+     * how many of the coming items will not be kept; they can be passed to
+     * {@link #skip(long)} instead of {@link #offer}
+     * @return
+     */
+    public long gap() {
+        if (seen < capacity) {
+            return 0;
+        }
+        if (capacity == 0) {
+            return Long.MAX_VALUE;
+        }
+        return next - seen;
+    }
+
+    /**
+     * count items that were not offered, at most {@link #gap()} of them
+     * @param count
+     */
+    public void skip(final long count) {
+        checkNotMerged();
+        if (count < 0 || count > gap()) {
+            throw new IllegalArgumentException("count");
+        }
+        seen += count;
+    }
+
+    /**
+     * the next item of the stream
+     * @param item
+     */
+    public void offer(final Item item) {
+        checkNotMerged();
+        if (capacity == 0) {
+            // nothing is ever kept, the item is only counted
+            seen++;
+            return;
+        }
+        if (seen < capacity) {
+            items[(int) seen] = item;
+            seen++;
+            if (seen == capacity) {
+                w = Math.exp(Math.log(uniform()) / capacity);
+                advance();
+            }
+            return;
+        }
+        if (seen == next) {
+            items[random.nextInt(capacity)] = item;
+            w *= Math.exp(Math.log(uniform()) / capacity);
+            seen++;
+            advance();
+            return;
+        }
+        seen++;
+    }
+
+    /**
+     * a sample of both streams together, as if their items had all been
+     * offered to one reservoir
+     * @param a
+     * @param b
+     * @return a reservoir that cannot take any more items
+     */
+    public static <Item> Reservoir<Item> merge(final Reservoir<Item> a,
+                                               final Reservoir<Item> b) {
+        if (a.capacity != b.capacity) {
+            throw new IllegalArgumentException("capacity");
+        }
+        final Reservoir<Item> result = new Reservoir<Item>(a.capacity, a.random);
+        result.seen = a.seen + b.seen;
+        result.merged = true;
+        final Item[] left = Arrays.copyOf(a.items, a.size());
+        final Item[] right = Arrays.copyOf(b.items, b.size());
+        int leftSize = left.length;
+        int rightSize = right.length;
+        long leftRemaining = a.seen;
+        long rightRemaining = b.seen;
+        for (int i = 0; i < result.size(); i++) {
+            // the next item comes from a with a's share of the items that
+            // are not in the result yet
+            final double share = leftRemaining
+                / (double) (leftRemaining + rightRemaining);
+            if (a.random.nextDouble() < share) {
+                final int index = a.random.nextInt(leftSize);
+                result.items[i] = left[index];
+                left[index] = left[--leftSize];
+                leftRemaining--;
+            } else {
+                final int index = a.random.nextInt(rightSize);
+                result.items[i] = right[index];
+                right[index] = right[--rightSize];
+                rightRemaining--;
+            }
+        }
+        return result;
+    }
+
+    // the next item to keep comes after a geometric number of rejections
+    private void advance() {
+        final double skip = Math.floor(Math.log(uniform()) / Math.log(1 - w));
+        if (skip >= Long.MAX_VALUE - seen) {
+            next = Long.MAX_VALUE;
+        } else {
+            next = seen + (long) skip;
+        }
+    }
+
+    // uniform in (0, 1], so that its logarithm is finite
+    private double uniform() {
+        return 1 - random.nextDouble();
+    }
+
+    private void checkNotMerged() {
+        if (merged) {
+            throw new IllegalStateException("merged");
+        }
+    }
+}
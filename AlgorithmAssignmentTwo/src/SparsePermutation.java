@@ -0,0 +1,127 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A random permutation of [0, n), drawn one element at a time by a Fisher
+ * Yates shuffle that only remembers the positions it has swapped. Drawing k
+ * elements takes O(k) time and memory, however large n is, and every order
+ * is equally likely. Once the swaps in the map number a quarter of the
+ * positions left, it carries on with a plain int[] of those positions,
+ * which is faster to index.
+ *
+ * @author Qiangqiang Gu
+ */
+public class SparsePermutation {
+    private static final int EMPTY = -1;
+    private int remaining;
+    // open addressing map from a swapped position to the value it now holds
+    private int[] keys;
+    private int[] values;
+    private int used = 0;
+    // the positions left, once the map has been given up
+    private int[] dense;
+
+    public SparsePermutation(final int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n");
+        }
+        remaining = n;
+        allocate(16);
+    }
+
+    public boolean hasNext() {
+        return remaining > 0;
+    }
+
+    public int remaining() {
+        return remaining;
+    }
+
+    /**
+     * the next element of the permutation
+     * @return
+     */
+    public int next() {
+        if (remaining == 0) {
+            throw new NoSuchElementException();
+        }
+        final int chosen = StdRandom.uniform(remaining);
+        remaining--;
+        if (dense != null) {
+            final int value = dense[chosen];
+            dense[chosen] = dense[remaining];
+            return value;
+        }
+        final int value = valueAt(chosen);
+        // the last position of the unshuffled part moves into the chosen one
+        if (chosen != remaining) {
+            put(chosen, valueAt(remaining));
+        }
+        if (2 * used > keys.length) {
+            grow();
+        }
+        return value;
+    }
+
+    private int valueAt(final int position) {
+        int slot = slot(position);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == position) {
+                return values[slot];
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        return position;
+    }
+
+    private void put(final int position, final int value) {
+        int slot = slot(position);
+        while (keys[slot] != EMPTY && keys[slot] != position) {
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        if (keys[slot] == EMPTY) {
+            used++;
+        }
+        keys[slot] = position;
+        values[slot] = value;
+    }
+
+    private int slot(final int position) {
+        // spread the bits, consecutive positions are common
+        final int hash = position * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (keys.length - 1);
+    }
+
+    // the map is half full: double it, or give it up once its entries
+    // are a quarter of the positions left
+    private void grow() {
+        if (4L * used < remaining) {
+            rehash();
+            return;
+        }
+        dense = new int[remaining];
+        for (int position = 0; position < remaining; position++) {
+            dense[position] = valueAt(position);
+        }
+        keys = null;
+        values = null;
+    }
+
+    private void rehash() {
+        final int[] oldKeys = keys;
+        final int[] oldValues = values;
+        allocate(2 * oldKeys.length);
+        used = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+}
@@ -1,10 +1,40 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 /**
+ * Prints k of the strings read from standard input, chosen at random.
+ * Execution: java Subset k [input [shards]]
+ *
+ * Without an input everything is read into a {@link RandomizedQueue}. With
+ * an input, a file or "-" for standard input, only a {@link Reservoir} of k
+ * strings is kept, so the input can be far larger than memory; a file can
+ * also be split into shards sampled in parallel and merged.
  *
  * @author Qiangqiang Gu
  */
 public class Subset {
-    public static void main(final String[] args) {
+    public static void main(final String[] args) throws IOException,
+        InterruptedException, ExecutionException {
         final int subSetSize = Integer.parseInt(args[0]);
+        if (args.length > 1) {
+            int shards = 1;
+            if (args.length > 2) {
+                shards = Integer.parseInt(args[2]);
+            }
+            print(sample(args[1], subSetSize, shards));
+            return;
+        }
         final RandomizedQueue<String> queue = new RandomizedQueue<String>();
         while (!StdIn.isEmpty()) {
             queue.enqueue(StdIn.readString());
@@ -14,4 +44,80 @@ public class Subset {
             StdOut.println(queue.dequeue());
         }
     }
+
+    private static Reservoir<String> sample(final String input, final int k,
+                                            final int shards)
+        throws IOException, InterruptedException, ExecutionException {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("shards");
+        }
+        if ("-".equals(input)) {
+            final TokenReader tokens =
+                new TokenReader(Channels.newChannel(System.in));
+            return sample(tokens, new Reservoir<String>(k));
+        }
+        final FileChannel file = FileChannel.open(new File(input).toPath(),
+                                                  StandardOpenOption.READ);
+        final ExecutorService executor = Executors.newFixedThreadPool(shards);
+        try {
+            final long length = file.size();
+            final List<Future<Reservoir<String>>> parts =
+                new ArrayList<Future<Reservoir<String>>>();
+            for (int shard = 0; shard < shards; shard++) {
+                final long start = length * shard / shards;
+                final long end = length * (shard + 1) / shards;
+                final Random random = new Random(StdRandom.uniform(1 << 30));
+                parts.add(executor.submit(shard(file, start, end, k, random)));
+            }
+            Reservoir<String> result = parts.get(0).get();
+            for (int shard = 1; shard < shards; shard++) {
+                result = Reservoir.merge(result, parts.get(shard).get());
+            }
+            return result;
+        } finally {
+            executor.shutdown();
+            file.close();
+        }
+    }
+
+    private static Callable<Reservoir<String>> shard(final FileChannel file,
+                                                    final long start,
+                                                    final long end, final int k,
+                                                    final Random random) {
+        return new Callable<Reservoir<String>>() {
+            @Override
+            public Reservoir<String> call() throws IOException {
+                final TokenReader tokens = new TokenReader(file, start, end);
+                return sample(tokens, new Reservoir<String>(k, random));
+            }
+        };
+    }
+
+    // read the tokens the reservoir might keep, skip the others
+    private static Reservoir<String> sample(final TokenReader tokens,
+                                            final Reservoir<String> reservoir)
+        throws IOException {
+        while (true) {
+            final long gap = reservoir.gap();
+            final long skipped = tokens.skip(gap);
+            reservoir.skip(skipped);
+            if (skipped < gap) {
+                return reservoir;
+            }
+            final String token = tokens.next();
+            if (token == null) {
+                return reservoir;
+            }
+            reservoir.offer(token);
+        }
+    }
+
+    // in random order, as the queue would print them
+    private static void print(final Reservoir<String> reservoir) {
+        final String[] items = reservoir.items().toArray(new String[0]);
+        StdRandom.shuffle(items);
+        for (final String item : items) {
+            StdOut.println(item);
+        }
+    }
 }
@@ -0,0 +1,158 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Splits a byte stream into white space separated tokens, like
+ * {@link StdIn#readString()} but reading 64KB at a time and able to skip
+ * tokens without turning them into strings. Tokens are decoded as UTF-8.
+ *
+ * A reader can also cover one byte range of a file, owning the tokens that
+ * start inside it, so that several threads can split a file between them.
+ *
+ * @author Qiangqiang Gu
+ */
+public class TokenReader {
+    private static final int BUFFER = 1 << 16;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private final ReadableByteChannel channel;
+    private final FileChannel file;
+    private final long end;
+    private final byte[] bytes = new byte[BUFFER];
+    private byte[] token = new byte[64];
+    // file offset of bytes[0], for range readers
+    private long offset;
+    private int index = 0;
+    private int limit = 0;
+    private boolean eof = false;
+
+    /**
+     * read the whole of a channel, for instance
+     * Channels.newChannel(System.in)
+     * @param channel
+     */
+    public TokenReader(final ReadableByteChannel channel) {
+        if (channel == null) {
+            throw new NullPointerException("channel");
+        }
+        this.channel = channel;
+        this.file = null;
+        this.end = Long.MAX_VALUE;
+    }
+
+    /**
+     * read the tokens that start in [start, end) of a file; the channel can
+     * be shared with readers of other ranges
+     * @param file
+     * @param start
+     * @param end
+     * @throws IOException
+     */
+    public TokenReader(final FileChannel file, final long start, final long end)
+        throws IOException {
+        if (file == null) {
+            throw new NullPointerException("file");
+        }
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("range");
+        }
+        this.channel = null;
+        this.file = file;
+        this.end = end;
+        if (start == 0) {
+            this.offset = 0;
+            return;
+        }
+        // a token running into the range belongs to the previous one
+        this.offset = start - 1;
+        if (fill() && !isSpace(bytes[0])) {
+            index = 1;
+            while (hasByte() && !isSpace(bytes[index])) {
+                index++;
+            }
+        } else {
+            index = Math.min(1, limit);
+        }
+    }
+
+    /**
+     * the next token
+     * @return null after the last one
+     * @throws IOException
+     */
+    public String next() throws IOException {
+        if (!skipSpace()) {
+            return null;
+        }
+        int length = 0;
+        while (hasByte() && !isSpace(bytes[index])) {
+            if (length == token.length) {
+                final byte[] larger = new byte[2 * token.length];
+                System.arraycopy(token, 0, larger, 0, length);
+                token = larger;
+            }
+            token[length++] = bytes[index++];
+        }
+        return new String(token, 0, length, UTF_8);
+    }
+
+    /**
+     * pass over tokens without decoding them
+     * @param count
+     * @return how many were skipped, fewer than count at the end
+     * @throws IOException
+     */
+    public long skip(final long count) throws IOException {
+        long skipped = 0;
+        while (skipped < count && skipSpace()) {
+            while (hasByte() && !isSpace(bytes[index])) {
+                index++;
+            }
+            skipped++;
+        }
+        return skipped;
+    }
+
+    // move to the start of the next token of this range
+    private boolean skipSpace() throws IOException {
+        while (hasByte() && isSpace(bytes[index])) {
+            index++;
+        }
+        return hasByte() && offset + index < end;
+    }
+
+    private boolean hasByte() throws IOException {
+        return index < limit || fill();
+    }
+
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        offset += limit;
+        index = 0;
+        limit = 0;
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int read = 0;
+        while (read == 0) {
+            if (file != null) {
+                read = file.read(buffer, offset);
+            } else {
+                read = channel.read(buffer);
+            }
+        }
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        limit = read;
+        return true;
+    }
+
+    private static boolean isSpace(final byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f'
+            || b == 0x0B;
+    }
+}
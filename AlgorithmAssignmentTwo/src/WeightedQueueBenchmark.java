@@ -0,0 +1,62 @@
+/**
+ * Rates of the operations of {@link WeightedRandomizedQueue} on a large
+ * queue: filling it, weighted samples, weight updates of sampled items and
+ * dequeues followed by enqueues.
+ * Execution: java WeightedQueueBenchmark [items] [operations]
+ *
+ * @author Qiangqiang Gu
+ */
+public class WeightedQueueBenchmark {
+
+    public static void main(String[] args) {
+        int items = 10000000;
+        int operations = 10000000;
+        if (args.length > 0) {
+            items = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            operations = Integer.parseInt(args[1]);
+        }
+        final Integer[] values = new Integer[items];
+        for (int i = 0; i < items; i++) {
+            values[i] = i;
+        }
+        StdOut.printf("%-10s %12s %10s %14s%n", "operation", "count", "seconds",
+                      "ops/second");
+        final WeightedRandomizedQueue<Integer> queue =
+            new WeightedRandomizedQueue<Integer>();
+        Stopwatch stopwatch = new Stopwatch();
+        for (int i = 0; i < items; i++) {
+            queue.enqueue(values[i], 1 + i % 100);
+        }
+        report("enqueue", items, stopwatch.elapsedTime());
+
+        long checksum = 0;
+        stopwatch = new Stopwatch();
+        for (int i = 0; i < operations; i++) {
+            checksum += queue.sample();
+        }
+        report("sample", operations, stopwatch.elapsedTime());
+
+        stopwatch = new Stopwatch();
+        for (int i = 0; i < operations; i++) {
+            final int handle = queue.sampleHandle();
+            queue.setWeight(handle, 1 + (queue.weight(handle) + i) % 100);
+        }
+        report("reweight", operations, stopwatch.elapsedTime());
+
+        stopwatch = new Stopwatch();
+        for (int i = 0; i < operations; i++) {
+            final Integer item = queue.dequeue();
+            checksum += item;
+            queue.enqueue(item, 1 + i % 100);
+        }
+        report("dequeue", operations, stopwatch.elapsedTime());
+        StdOut.println("(" + checksum % 10 + ")");
+    }
+
+    private static void report(String name, int count, double seconds) {
+        StdOut.printf("%-10s %12d %10.3f %14.0f%n", name, count, seconds,
+                      count / seconds);
+    }
+}
@@ -0,0 +1,235 @@
+import java.util.NoSuchElementException;
+
+/**
+ * A randomized queue whose items are drawn with probability proportional to
+ * their weights. The weights are summed in a Fenwick tree, so enqueue,
+ * sample, dequeue and changing a weight all take O(log n).
+ *
+ * Every item is given a handle when it is enqueued, the slot it occupies,
+ * which stays valid until the item leaves the queue; the slots of removed
+ * items are reused. Since items never move, a handle is all it takes to
+ * change an item's weight or take it out.
+ *
+ * @author Qiangqiang Gu
+ */
+public class WeightedRandomizedQueue<Item> {
+    private static final int MIN_CAPACITY = 16;
+    private Item[] items;
+    private double[] weights;
+    // tree[i] holds the weights of slots (i - (i & -i), i], 1 based
+    private double[] tree;
+    private int[] free;
+    private int freeCount = 0;
+    // slots in use or freed, the rest of the arrays is untouched
+    private int used = 0;
+    private int count = 0;
+    // sums drift under many updates, so the tree is rebuilt now and then
+    private int updates = 0;
+
+    public WeightedRandomizedQueue() {
+        allocate(MIN_CAPACITY);
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public double totalWeight() {
+        return prefix(items.length);
+    }
+
+    /**
+     * add an item
+     * @param item
+     * @param weight positive
+     * @return the handle of the item
+     */
+    public int enqueue(final Item item, final double weight) {
+        if (item == null) {
+            throw new NullPointerException();
+        }
+        checkWeight(weight);
+        int slot;
+        if (freeCount > 0) {
+            slot = free[--freeCount];
+        } else {
+            if (used == items.length) {
+                allocate(2 * items.length);
+            }
+            slot = used++;
+        }
+        items[slot] = item;
+        weights[slot] = weight;
+        add(slot, weight);
+        count++;
+        return slot;
+    }
+
+    /**
+     * remove an item chosen with probability proportional to its weight
+     * @return
+     */
+    public Item dequeue() {
+        return remove(sampleHandle());
+    }
+
+    /**
+     * an item chosen with probability proportional to its weight
+     * @return
+     */
+    public Item sample() {
+        return items[sampleHandle()];
+    }
+
+    /**
+     * the handle of an item chosen with probability proportional to its
+     * weight, for instance to change its weight
+     * @return
+     */
+    public int sampleHandle() {
+        if (count == 0) {
+            throw new NoSuchElementException();
+        }
+        while (true) {
+            final int slot = find(StdRandom.uniform() * totalWeight());
+            // rounding may leave a free slot a trace of its old weight
+            if (slot < used && items[slot] != null) {
+                return slot;
+            }
+        }
+    }
+
+    public Item get(final int handle) {
+        validate(handle);
+        return items[handle];
+    }
+
+    public double weight(final int handle) {
+        validate(handle);
+        return weights[handle];
+    }
+
+    public void setWeight(final int handle, final double weight) {
+        validate(handle);
+        checkWeight(weight);
+        final double delta = weight - weights[handle];
+        weights[handle] = weight;
+        add(handle, delta);
+    }
+
+    /**
+     * take an item out of the queue; its handle becomes invalid
+     * @param handle
+     * @return the item
+     */
+    public Item remove(final int handle) {
+        validate(handle);
+        final Item item = items[handle];
+        final double delta = -weights[handle];
+        items[handle] = null;
+        weights[handle] = 0;
+        add(handle, delta);
+        free[freeCount++] = handle;
+        count--;
+        return item;
+    }
+
+    // add delta to the weight of a slot in the tree, once weights[slot] holds
+    // the new weight
+    private void add(final int slot, final double delta) {
+        for (int i = slot + 1; i <= items.length; i += i & -i) {
+            tree[i] += delta;
+        }
+        updates++;
+        if (updates > items.length) {
+            rebuild();
+        }
+    }
+
+    // sum of the weights of slots [0, end)
+    private double prefix(final int end) {
+        double sum = 0;
+        for (int i = end; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // the slot whose range of cumulative weight contains target
+    private int find(final double target) {
+        int position = 0;
+        double rest = target;
+        for (int step = items.length; step > 0; step >>= 1) {
+            final int next = position + step;
+            if (next <= items.length && tree[next] <= rest) {
+                position = next;
+                rest -= tree[next];
+            }
+        }
+        return position;
+    }
+
+    // fill the tree from the weights in linear time
+    private void rebuild() {
+        tree[0] = 0;
+        for (int i = 1; i <= items.length; i++) {
+            tree[i] = weights[i - 1];
+        }
+        for (int i = 1; i <= items.length; i++) {
+            final int parent = i + (i & -i);
+            if (parent <= items.length) {
+                tree[parent] += tree[i];
+            }
+        }
+        updates = 0;
+    }
+
+    // grow to a power of two capacity, keeping every slot where it is
+    private void allocate(final int capacity) {
+        final Item[] newItems = (Item[]) new Object[capacity];
+        final double[] newWeights = new double[capacity];
+        final int[] newFree = new int[capacity];
+        if (items != null) {
+            System.arraycopy(items, 0, newItems, 0, used);
+            System.arraycopy(weights, 0, newWeights, 0, used);
+            System.arraycopy(free, 0, newFree, 0, freeCount);
+        }
+        items = newItems;
+        weights = newWeights;
+        free = newFree;
+        tree = new double[capacity + 1];
+        rebuild();
+    }
+
+    private void validate(final int handle) {
+        if (handle < 0 || handle >= used || items[handle] == null) {
+            throw new IllegalArgumentException("handle");
+        }
+    }
+
+    private static void checkWeight(final double weight) {
+        if (!(weight > 0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("weight");
+        }
+    }
+
+    public static void main(final String[] args) {
+        final WeightedRandomizedQueue<String> queue =
+            new WeightedRandomizedQueue<String>();
+        queue.enqueue("rare", 1);
+        final int common = queue.enqueue("common", 9);
+        int rare = 0;
+        for (int i = 0; i < 10000; i++) {
+            if ("rare".equals(queue.sample())) {
+                rare++;
+            }
+        }
+        StdOut.println("rare drawn " + rare + " times in 10000, about 1000");
+        queue.setWeight(common, 1);
+        StdOut.println(queue.dequeue() + " " + queue.dequeue());
+    }
+}
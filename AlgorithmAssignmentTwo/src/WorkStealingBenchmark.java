@@ -0,0 +1,155 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of {@link WorkStealingDeque} against a {@link Deque} guarded by
+ * synchronized, with one owner thread and a growing number of thieves. The
+ * owner pushes every item and pops two out of three right away; the thieves
+ * steal whatever is left, as idle workers of a scheduler would.
+ * Execution: java WorkStealingBenchmark items [max threads]
+ *
+ * @author Qiangqiang Gu
+ */
+public class WorkStealingBenchmark {
+
+    /**
+     * The three operations under test.
+     */
+    private abstract static class Target {
+        abstract void push(Integer item);
+
+        abstract Integer pop();
+
+        abstract Integer steal();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final int count = Integer.parseInt(args[0]);
+        int maxThreads = 32;
+        if (args.length > 1) {
+            maxThreads = Integer.parseInt(args[1]);
+        }
+        final Integer[] items = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            items[i] = i;
+        }
+        StdOut.printf("%-14s %8s %10s %14s%n", "deque", "threads", "seconds",
+                      "items/second");
+        // the first pass warms up the compiler, the second is reported
+        for (int pass = 0; pass < 2; pass++) {
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                run("synchronized", lockedDeque(), items, threads, pass == 1);
+                run("work stealing", stealingDeque(), items, threads, pass == 1);
+            }
+        }
+    }
+
+    private static void run(String name, final Target target,
+                            final Integer[] items, int threads, boolean report)
+        throws InterruptedException {
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicLong checksum = new AtomicLong();
+        final Thread[] thieves = new Thread[threads - 1];
+        for (int k = 0; k < thieves.length; k++) {
+            thieves[k] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long sum = 0;
+                    while (true) {
+                        final Integer item = target.steal();
+                        if (item != null) {
+                            sum += item;
+                        } else if (done.get()) {
+                            break;
+                        }
+                    }
+                    checksum.addAndGet(sum);
+                }
+            });
+        }
+        final Stopwatch stopwatch = new Stopwatch();
+        for (final Thread thief : thieves) {
+            thief.start();
+        }
+        long sum = 0;
+        for (int i = 0; i < items.length; i++) {
+            target.push(items[i]);
+            if (i % 3 != 0) {
+                final Integer item = target.pop();
+                if (item != null) {
+                    sum += item;
+                }
+            }
+        }
+        Integer item = target.pop();
+        while (item != null) {
+            sum += item;
+            item = target.pop();
+        }
+        done.set(true);
+        for (final Thread thief : thieves) {
+            thief.join();
+        }
+        final double elapsed = stopwatch.elapsedTime();
+        final long expected = (long) items.length * (items.length - 1) / 2;
+        if (checksum.addAndGet(sum) != expected) {
+            throw new IllegalStateException("lost items");
+        }
+        if (report) {
+            StdOut.printf("%-14s %8d %10.3f %14.0f%n", name, threads, elapsed,
+                          items.length / elapsed);
+        }
+    }
+
+    private static Target lockedDeque() {
+        final Deque<Integer> deque = new Deque<Integer>();
+        return new Target() {
+            @Override
+            void push(Integer item) {
+                synchronized (deque) {
+                    deque.addLast(item);
+                }
+            }
+
+            @Override
+            Integer pop() {
+                synchronized (deque) {
+                    if (deque.isEmpty()) {
+                        return null;
+                    }
+                    return deque.removeLast();
+                }
+            }
+
+            @Override
+            Integer steal() {
+                synchronized (deque) {
+                    if (deque.isEmpty()) {
+                        return null;
+                    }
+                    return deque.removeFirst();
+                }
+            }
+        };
+    }
+
+    private static Target stealingDeque() {
+        final WorkStealingDeque<Integer> deque = new WorkStealingDeque<Integer>();
+        return new Target() {
+            @Override
+            void push(Integer item) {
+                deque.push(item);
+            }
+
+            @Override
+            Integer pop() {
+                return deque.pop();
+            }
+
+            @Override
+            Integer steal() {
+                return deque.steal();
+            }
+        };
+    }
+}
@@ -0,0 +1,200 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock free work stealing deque (Chase and Lev). One owner thread pushes
+ * and pops items at the bottom, like a stack; any other thread may steal the
+ * oldest item from the top. Only a steal, or a pop of the very last item,
+ * needs a compare and set, so the owner runs without contention as long as
+ * the deque is not nearly empty.
+ *
+ * The items live in a circular array that doubles when full and is never
+ * shrunk. A thief may still read the array it found before a resize; the
+ * items it can take are the same in both.
+ * Execution: java WorkStealingDeque [thieves] [items]
+ * runs a stress test, see also WorkStealingBenchmark.
+ *
+ * @author Qiangqiang Gu
+ */
+public class WorkStealingDeque<Item> {
+    private static final int MIN_CAPACITY = 16;
+    // index of the oldest item, only ever incremented
+    private final AtomicLong top = new AtomicLong();
+    // index after the newest item, only written by the owner
+    private volatile long bottom = 0;
+    private volatile AtomicReferenceArray<Item> items =
+        new AtomicReferenceArray<Item>(MIN_CAPACITY);
+
+    /**
+     * number of items, which may be stale by the time it is returned
+     * @return
+     */
+    public int size() {
+        final long size = bottom - top.get();
+        if (size < 0) {
+            return 0;
+        }
+        return (int) size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * add an item at the bottom; owner thread only
+     * @param item
+     */
+    public void push(final Item item) {
+        if (item == null) {
+            throw new NullPointerException();
+        }
+        final long b = bottom;
+        final long t = top.get();
+        AtomicReferenceArray<Item> array = items;
+        if (b - t >= array.length() - 1) {
+            array = grow(array, b, t);
+        }
+        array.set((int) b & (array.length() - 1), item);
+        // publishes the item to thieves
+        bottom = b + 1;
+    }
+
+    /**
+     * remove the newest item; owner thread only
+     * @return the item, null if the deque is empty
+     */
+    public Item pop() {
+        final long b = bottom - 1;
+        final AtomicReferenceArray<Item> array = items;
+        // claim the slot before looking at top, so a thief that reads the
+        // new bottom will not take it
+        bottom = b;
+        final long t = top.get();
+        if (b < t) {
+            bottom = t;
+            return null;
+        }
+        final int index = (int) b & (array.length() - 1);
+        Item item = array.get(index);
+        if (b > t) {
+            array.set(index, null);
+            return item;
+        }
+        // the last item: race the thieves for it
+        if (top.compareAndSet(t, t + 1)) {
+            array.set(index, null);
+        } else {
+            item = null;
+        }
+        bottom = t + 1;
+        return item;
+    }
+
+    /**
+     * remove the oldest item; any thread
+     * @return the item, null if the deque is empty
+     */
+    public Item steal() {
+        while (true) {
+            final long t = top.get();
+            final long b = bottom;
+            if (t >= b) {
+                return null;
+            }
+            final AtomicReferenceArray<Item> array = items;
+            final Item item = array.get((int) t & (array.length() - 1));
+            // the slot is not cleared: once top moves on, the owner may
+            // already be reusing it
+            if (top.compareAndSet(t, t + 1)) {
+                return item;
+            }
+        }
+    }
+
+    private AtomicReferenceArray<Item> grow(final AtomicReferenceArray<Item> array,
+                                            final long b, final long t) {
+        final AtomicReferenceArray<Item> newItems =
+            new AtomicReferenceArray<Item>(array.length() * 2);
+        for (long i = t; i < b; i++) {
+            newItems.set((int) i & (newItems.length() - 1),
+                         array.get((int) i & (array.length() - 1)));
+        }
+        items = newItems;
+        return newItems;
+    }
+
+    /**
+     * stress test: the owner pushes every item and pops some of them while
+     * the thieves steal; each item has to come out exactly once
+     * @param args
+     * @throws InterruptedException
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int thieves = 4;
+        int count = 1000000;
+        if (args.length > 0) {
+            thieves = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            count = Integer.parseInt(args[1]);
+        }
+        final int total = count;
+        final WorkStealingDeque<Integer> deque = new WorkStealingDeque<Integer>();
+        final AtomicIntegerArray taken = new AtomicIntegerArray(total);
+        final AtomicLong stolen = new AtomicLong();
+        final Thread[] threads = new Thread[thieves];
+        final AtomicBoolean done = new AtomicBoolean();
+        for (int k = 0; k < thieves; k++) {
+            threads[k] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long mine = 0;
+                    while (true) {
+                        final Integer item = deque.steal();
+                        if (item != null) {
+                            taken.incrementAndGet(item);
+                            mine++;
+                        } else if (done.get()) {
+                            break;
+                        }
+                    }
+                    stolen.addAndGet(mine);
+                }
+            });
+            threads[k].start();
+        }
+        long popped = 0;
+        for (int i = 0; i < total; i++) {
+            deque.push(i);
+            // keep the deque short so pops and steals fight over it
+            if (i % 3 != 0) {
+                final Integer item = deque.pop();
+                if (item != null) {
+                    taken.incrementAndGet(item);
+                    popped++;
+                }
+            }
+        }
+        Integer item = deque.pop();
+        while (item != null) {
+            taken.incrementAndGet(item);
+            popped++;
+            item = deque.pop();
+        }
+        done.set(true);
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < total; i++) {
+            if (taken.get(i) != 1) {
+                throw new IllegalStateException(i + " taken " + taken.get(i)
+                                                + " times");
+            }
+        }
+        StdOut.println(total + " items: " + popped + " popped, " + stolen.get()
+                       + " stolen by " + thieves + " thieves");
+    }
+}